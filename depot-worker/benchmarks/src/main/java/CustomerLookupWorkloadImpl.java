@@ -0,0 +1,20 @@
+import benchmarks.CustomerLookupWorkload;
+
+// Manager looks customers up through its queue's index; this times that
+// lookup for the customer who joined last.
+public class CustomerLookupWorkloadImpl implements CustomerLookupWorkload {
+    private final Manager manager = new Manager();
+    private final String last;
+
+    public CustomerLookupWorkloadImpl(int queueLength) throws ValidationException {
+        for (int i = 0; i < queueLength; i++) {
+            manager.addCustomerToQueue(new Customer(String.format("C%03d", i), "Customer " + i));
+        }
+        last = String.format("C%03d", queueLength - 1);
+    }
+
+    @Override
+    public boolean findLast() {
+        return manager.getCustomerQueue().findById(last) != null;
+    }
+}
@@ -0,0 +1,36 @@
+import benchmarks.FeeWorkload;
+import java.util.List;
+
+public class FeeWorkloadImpl implements FeeWorkload {
+    private final Worker worker = new Worker();
+    private final List<Parcel> parcels;
+    private final double[] weights;
+    private final byte[] typeCodes;
+    private final double[] fees;
+
+    public FeeWorkloadImpl(int count) throws ValidationException {
+        parcels = Fixtures.createParcels(count);
+        weights = new double[count];
+        typeCodes = new byte[count];
+        fees = new double[count];
+        for (int i = 0; i < count; i++) {
+            weights[i] = parcels.get(i).getWeight();
+            typeCodes[i] = (byte) parcels.get(i).getParcelType().ordinal();
+        }
+    }
+
+    @Override
+    public double calculateFeeEach() throws ValidationException {
+        double total = 0;
+        for (Parcel parcel : parcels) {
+            total += worker.calculateFee(parcel);
+        }
+        return total;
+    }
+
+    @Override
+    public double calculateFeesBatch() throws ValidationException {
+        worker.calculateFees(weights, typeCodes, fees, weights.length);
+        return fees[fees.length - 1];
+    }
+}
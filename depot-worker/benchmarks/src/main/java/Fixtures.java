@@ -0,0 +1,34 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Data shared by the workloads. IDs are limited to P000-P999, so anything
+// past 1000 parcels repeats them.
+final class Fixtures {
+    static final String[] TYPES = ParcelType.displayNames();
+
+    private Fixtures() {
+    }
+
+    static List<Parcel> createParcels(int count) throws ValidationException {
+        List<Parcel> parcels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parcels.add(new Parcel(String.format("P%03d", i % 1000), 0.5 + (i % 995) / 10.0, TYPES[i % 3]));
+        }
+        return parcels;
+    }
+
+    // Larger manifests repeat IDs, and the loader rejects the repeats as
+    // duplicates.
+    static void writeManifest(Path file, int lines) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < lines; i++) {
+                writer.write(String.format("P%03d,%.1f,%s%n", i % 1000, 0.5 + (i % 995) / 10.0, TYPES[i % 3]));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+import benchmarks.ParcelLoadWorkload;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class ParcelLoadWorkloadImpl implements ParcelLoadWorkload {
+    private final int lines;
+    private final String name;
+    private final Path file;
+    private Manager manager;
+
+    public ParcelLoadWorkloadImpl(int lines) {
+        this.lines = lines;
+        this.name = "benchmark-parcels-" + lines + ".txt";
+        this.file = Paths.get("data", name);
+    }
+
+    @Override
+    public void writeManifest() throws IOException {
+        Fixtures.writeManifest(file, lines);
+    }
+
+    @Override
+    public void deleteManifest() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public void prepare() {
+        manager = new Manager();
+    }
+
+    @Override
+    public int load() {
+        manager.loadParcelData(name);
+        return manager.getParcelMap().size();
+    }
+}
@@ -0,0 +1,72 @@
+import benchmarks.ParcelMapWorkload;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class ParcelMapWorkloadImpl implements ParcelMapWorkload {
+    private static final int PARCELS = 1000;
+
+    private final ParcelMap loaded = new ParcelMap();
+    private final String[] ids = new String[PARCELS];
+    private ParcelMap fresh;
+    private List<Parcel> toAdd;
+
+    public ParcelMapWorkloadImpl() throws ValidationException {
+        for (Parcel parcel : Fixtures.createParcels(PARCELS)) {
+            loaded.addParcel(parcel);
+            parcel.setFee(TariffEngine.current().feeFor(parcel.getParcelType(), parcel.getWeight()));
+        }
+        // Visits every parcel in an order unrelated to insertion.
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = String.format("P%03d", (i * 7919) % PARCELS);
+        }
+    }
+
+    @Override
+    public void prepareAdd() throws ValidationException {
+        fresh = new ParcelMap();
+        toAdd = Fixtures.createParcels(PARCELS);
+    }
+
+    @Override
+    public int addParcels() throws ValidationException {
+        for (Parcel parcel : toAdd) {
+            fresh.addParcel(parcel);
+        }
+        return fresh.size();
+    }
+
+    @Override
+    public int findParcels() {
+        int found = 0;
+        for (String id : ids) {
+            if (loaded.findParcel(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    // Sorting by fee for the table: copy-and-sort against walking the index.
+    @Override
+    public double sortByFeeCopy() {
+        List<Parcel> sorted = new ArrayList<>(loaded.getAllParcels());
+        sorted.sort(Comparator.comparing(Parcel::getFee));
+        return sorted.get(sorted.size() - 1).getFee();
+    }
+
+    @Override
+    public double orderedByFee() {
+        List<Parcel> sorted = new ArrayList<>(loaded.getParcelsOrderedByFee());
+        return sorted.get(sorted.size() - 1).getFee();
+    }
+
+    @Override
+    public int weightRanges() {
+        int found = 0;
+        for (int i = 0; i < 100; i++) {
+            found += loaded.getParcelsInWeightRange(i, i + 10).size();
+        }
+        return found;
+    }
+}
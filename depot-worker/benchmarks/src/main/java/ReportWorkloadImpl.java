@@ -0,0 +1,41 @@
+import benchmarks.ReportWorkload;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+public class ReportWorkloadImpl implements ReportWorkload {
+    private static final String REPORT = "benchmark-report.txt";
+    private static final int PARCELS_PER_CUSTOMER = 10;
+
+    private final int customers;
+    private Manager manager;
+
+    public ReportWorkloadImpl(int customers) {
+        this.customers = customers;
+    }
+
+    @Override
+    public void prepare() throws ValidationException {
+        manager = new Manager();
+        List<Parcel> parcels = Fixtures.createParcels(customers * PARCELS_PER_CUSTOMER);
+        for (int i = 0; i < customers; i++) {
+            Customer customer = new Customer(String.format("C%03d", i), "Customer " + i);
+            for (int j = 0; j < PARCELS_PER_CUSTOMER; j++) {
+                customer.addParcel(parcels.get(i * PARCELS_PER_CUSTOMER + j));
+            }
+            manager.addCustomerToQueue(customer);
+        }
+    }
+
+    @Override
+    public int run() {
+        manager.processAndGenerateReport(REPORT);
+        return manager.getCustomerQueue().size();
+    }
+
+    @Override
+    public void deleteReport() throws IOException {
+        Files.deleteIfExists(Paths.get("data", REPORT));
+    }
+}
@@ -0,0 +1,38 @@
+import benchmarks.SearchWorkload;
+
+public class SearchWorkloadImpl implements SearchWorkload {
+    private static final String[] TERMS = {"p1", "42", "p99", "7"};
+
+    private final ParcelSearchIndex index;
+
+    public SearchWorkloadImpl() throws ValidationException {
+        ParcelMap store = new ParcelMap();
+        for (Parcel parcel : Fixtures.createParcels(1000)) {
+            store.addParcel(parcel);
+        }
+        index = new ParcelSearchIndex(store);
+    }
+
+    @Override
+    public int findByIdContaining() {
+        int found = 0;
+        for (String term : TERMS) {
+            found += index.findByIdContaining(term, () -> false).size();
+        }
+        return found;
+    }
+
+    @Override
+    public int findByWeightNear() {
+        int found = 0;
+        for (int i = 0; i < 100; i++) {
+            found += index.findByWeightNear(i, 5, () -> false).size();
+        }
+        return found;
+    }
+
+    @Override
+    public void close() {
+        index.close();
+    }
+}
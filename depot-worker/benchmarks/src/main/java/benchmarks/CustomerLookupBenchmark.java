@@ -0,0 +1,39 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Finding a customer by ID, at several queue lengths; a lookup that walks
+// the queue shows up as throughput falling with the length.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CustomerLookupBenchmark {
+    @Param({"1", "10", "100"})
+    public int queueLength;
+
+    private CustomerLookupWorkload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create(CustomerLookupWorkload.class, queueLength);
+    }
+
+    @Benchmark
+    public boolean findCustomer() {
+        return workload.findLast();
+    }
+}
@@ -0,0 +1,6 @@
+package benchmarks;
+
+public interface CustomerLookupWorkload {
+    // Looks up the customer at the back of the queue.
+    boolean findLast();
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Pricing one parcel at a time against the batch API, per parcel. The batch
+// runs with the Vector API and, for comparison, with the scalar loop.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class FeeBenchmark {
+    private static final int PARCELS = 1000;
+
+    private FeeWorkload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create(FeeWorkload.class, PARCELS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PARCELS)
+    public double calculateFee() throws Exception {
+        return workload.calculateFeeEach();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PARCELS)
+    public double calculateFeesBatch() throws Exception {
+        return workload.calculateFeesBatch();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PARCELS)
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Ddepot.vectorFees=false"})
+    public double calculateFeesBatchScalar() throws Exception {
+        return workload.calculateFeesBatch();
+    }
+}
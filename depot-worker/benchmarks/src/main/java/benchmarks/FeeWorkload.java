@@ -0,0 +1,9 @@
+package benchmarks;
+
+public interface FeeWorkload {
+    // Sum of Worker.calculateFee over every parcel.
+    double calculateFeeEach() throws Exception;
+
+    // The same fees through Worker.calculateFees; returns the last one.
+    double calculateFeesBatch() throws Exception;
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Manager.loadParcelData on a generated manifest, into a fresh Manager each
+// time. Past 1000 lines the IDs repeat, so most of the larger file is
+// rejected as duplicates; the loader's messages about them are discarded.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParcelLoadBenchmark {
+    @Param({"10000", "1000000"})
+    public int lines;
+
+    private ParcelLoadWorkload workload;
+    private PrintStream stdout;
+    private PrintStream stderr;
+
+    @Setup
+    public void setUp() throws Exception {
+        workload = Workloads.create(ParcelLoadWorkload.class, lines);
+        workload.writeManifest();
+        stdout = System.out;
+        stderr = System.err;
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(discard);
+        System.setErr(discard);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        System.setOut(stdout);
+        System.setErr(stderr);
+        workload.deleteManifest();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() {
+        workload.prepare();
+    }
+
+    @Benchmark
+    public int loadParcelData() {
+        return workload.load();
+    }
+}
@@ -0,0 +1,13 @@
+package benchmarks;
+
+public interface ParcelLoadWorkload {
+    void writeManifest() throws Exception;
+
+    void deleteManifest() throws Exception;
+
+    // A fresh Manager for load.
+    void prepare();
+
+    // Loads the manifest; returns how many parcels were added.
+    int load();
+}
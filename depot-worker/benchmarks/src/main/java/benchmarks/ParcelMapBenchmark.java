@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Per-parcel cost of adding to and finding in a map of 1000 parcels, and the
+// orderings the table asks for.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ParcelMapBenchmark {
+    private ParcelMapWorkload workload;
+
+    // Adding needs an empty map every time; a thousand adds take long
+    // enough for per-invocation setup to stay out of the measurement. Only
+    // addParcel uses this state, so the other benchmarks skip that setup.
+    @State(Scope.Benchmark)
+    public static class EmptyMap {
+        ParcelMapWorkload workload;
+
+        @Setup
+        public void setUp() {
+            workload = Workloads.create(ParcelMapWorkload.class);
+        }
+
+        @Setup(Level.Invocation)
+        public void prepareAdd() throws Exception {
+            workload.prepareAdd();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create(ParcelMapWorkload.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public int addParcel(EmptyMap map) throws Exception {
+        return map.workload.addParcels();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public int findParcel() {
+        return workload.findParcels();
+    }
+
+    @Benchmark
+    public double sortByFeeCopy() {
+        return workload.sortByFeeCopy();
+    }
+
+    @Benchmark
+    public double getParcelsOrderedByFee() {
+        return workload.orderedByFee();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public int getParcelsInWeightRange() {
+        return workload.weightRanges();
+    }
+}
@@ -0,0 +1,17 @@
+package benchmarks;
+
+public interface ParcelMapWorkload {
+    // A fresh empty map and a fresh set of parcels for addParcels.
+    void prepareAdd() throws Exception;
+
+    int addParcels() throws Exception;
+
+    // The rest run against a map loaded once, with fees set.
+    int findParcels();
+
+    double sortByFeeCopy();
+
+    double orderedByFee();
+
+    int weightRanges();
+}
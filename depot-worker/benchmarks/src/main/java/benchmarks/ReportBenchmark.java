@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Manager.processAndGenerateReport over a queue of 100 customers holding 10
+// parcels each, per customer served.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ReportBenchmark {
+    private static final int CUSTOMERS = 100;
+
+    private ReportWorkload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create(ReportWorkload.class, CUSTOMERS);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() throws Exception {
+        workload.prepare();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        workload.deleteReport();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CUSTOMERS)
+    public int processAndGenerateReport() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,11 @@
+package benchmarks;
+
+public interface ReportWorkload {
+    // A fresh Manager with the customers queued and their parcels assigned.
+    void prepare() throws Exception;
+
+    // Serves the queue and writes the report; returns the parcel count.
+    int run();
+
+    void deleteReport() throws Exception;
+}
@@ -0,0 +1,9 @@
+package benchmarks;
+
+public interface SearchWorkload {
+    int findByIdContaining();
+
+    int findByWeightNear();
+
+    void close();
+}
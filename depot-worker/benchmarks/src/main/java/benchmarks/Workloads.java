@@ -0,0 +1,24 @@
+package benchmarks;
+
+import java.lang.reflect.Constructor;
+
+// The depot's classes live in the unnamed package, which JMH will not
+// generate benchmarks for and which named packages cannot import. Each
+// benchmark therefore drives the depot through one of the interfaces in this
+// package, implemented by the class of the same name plus "Impl" in this
+// module's unnamed package. The lookup happens once, during setup; in the
+// measured loop the call is monomorphic and the JIT inlines it.
+final class Workloads {
+    private Workloads() {
+    }
+
+    static <T> T create(Class<T> api, Object... args) {
+        String name = api.getSimpleName() + "Impl";
+        try {
+            Constructor<?> constructor = Class.forName(name).getConstructors()[0];
+            return api.cast(constructor.newInstance(args));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + name, e);
+        }
+    }
+}
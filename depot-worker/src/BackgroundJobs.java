@@ -0,0 +1,177 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+// Runs the UI's long operations off the EDT. Every job type has its own
+// worker thread, so a report being written does not hold up a parcel load,
+// and a policy for a job submitted while another of the same type is still
+// pending: QUEUE runs it after the others, REJECT refuses it.
+//
+// Jobs report through ProgressListener. Progress is coalesced, so however
+// often a job reports, at most one update per job is waiting on the EDT. The
+// Monitor and the completion callbacks always run on the EDT, and submit must
+// be called there too.
+class BackgroundJobs {
+    enum Policy { QUEUE, REJECT }
+
+    interface Task<T> {
+        T run(ProgressListener progress) throws Exception;
+    }
+
+    // Tracks every job, e.g. for a status bar. failure is null when the job
+    // returned normally, including after it was cancelled.
+    interface Monitor {
+        void jobSubmitted(Job<?> job);
+
+        void jobProgress(Job<?> job, long done, long total, String message);
+
+        void jobFinished(Job<?> job, Exception failure);
+    }
+
+    private static final class JobType {
+        final Policy policy;
+        final ExecutorService executor;
+        int pending; // Submitted and not yet finished; EDT only.
+
+        JobType(String name, Policy policy) {
+            this.policy = policy;
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "job-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static final class Update {
+        final long done;
+        final long total;
+        final String message;
+
+        Update(long done, long total, String message) {
+            this.done = done;
+            this.total = total;
+            this.message = message;
+        }
+    }
+
+    final class Job<T> implements ProgressListener {
+        private final JobType type;
+        private final String description;
+        private final boolean cancellable;
+        private final Task<T> task;
+        private final Consumer<T> onSuccess;
+        private final AtomicReference<Update> latest = new AtomicReference<>();
+        private volatile boolean cancelled;
+
+        private Job(JobType type, String description, boolean cancellable, Task<T> task, Consumer<T> onSuccess) {
+            this.type = type;
+            this.description = description;
+            this.cancellable = cancellable;
+            this.task = task;
+            this.onSuccess = onSuccess;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public boolean isCancellable() {
+            return cancellable;
+        }
+
+        // Asks the job to stop at its next check; it still finishes normally.
+        public void cancel() {
+            if (cancellable) {
+                cancelled = true;
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void progress(long done, long total, String message) {
+            if (latest.getAndSet(new Update(done, total, message)) == null) {
+                SwingUtilities.invokeLater(this::publishProgress);
+            }
+        }
+
+        private void publishProgress() {
+            Update update = latest.getAndSet(null);
+            if (update != null) {
+                monitor.jobProgress(this, update.done, update.total, update.message);
+            }
+        }
+
+        private void execute() {
+            // A job cancelled while still queued never runs.
+            boolean ran = !cancelled;
+            T result = null;
+            Exception failure = null;
+            // finish always runs, so the type's pending count drops even when
+            // the task throws an Error; the Error is still rethrown.
+            try {
+                if (ran) {
+                    result = task.run(this);
+                }
+            } catch (Exception e) {
+                failure = e;
+            } catch (Error e) {
+                failure = new ExecutionException(e);
+                throw e;
+            } finally {
+                T finalResult = result;
+                Exception finalFailure = failure;
+                SwingUtilities.invokeLater(() -> finish(ran, finalResult, finalFailure));
+            }
+        }
+
+        private void finish(boolean ran, T result, Exception failure) {
+            publishProgress();
+            type.pending--;
+            if (ran && failure == null && onSuccess != null) {
+                onSuccess.accept(result);
+            }
+            monitor.jobFinished(this, failure);
+        }
+    }
+
+    private final Map<String, JobType> types = new HashMap<>();
+    private final Monitor monitor;
+
+    BackgroundJobs(Monitor monitor) {
+        this.monitor = monitor;
+    }
+
+    public void register(String type, Policy policy) {
+        if (types.containsKey(type)) {
+            throw new IllegalArgumentException("Job type already registered: " + type);
+        }
+        types.put(type, new JobType(type, policy));
+    }
+
+    // Returns the job, or null if the type's policy refused it.
+    public <T> Job<T> submit(String type, String description, boolean cancellable,
+            Task<T> task, Consumer<T> onSuccess) {
+        JobType jobType = types.get(type);
+        if (jobType == null) {
+            throw new IllegalArgumentException("Unknown job type: " + type);
+        }
+        if (jobType.policy == Policy.REJECT && jobType.pending > 0) {
+            return null;
+        }
+        Job<T> job = new Job<>(jobType, description, cancellable, task, onSuccess);
+        jobType.pending++;
+        monitor.jobSubmitted(job);
+        jobType.executor.execute(job::execute);
+        return job;
+    }
+}
@@ -0,0 +1,95 @@
+// One change to the depot, as carried by ChangeEventBus. The bus allocates
+// its events once, in its ring, and copies each one into the subscriber's
+// own instance before handing it over, so publishing allocates nothing.
+// A subscriber that keeps anything past the call must copy it out.
+final class ChangeEvent {
+    enum Type {
+        PARCEL_ADDED,
+        PARCEL_STATUS_CHANGED,
+        PARCEL_FEE_CHANGED,
+        PARCEL_PROCESSED,
+        PARCELS_CLEARED,
+        CUSTOMER_ENQUEUED,
+        CUSTOMER_DEQUEUED,   // served from the front of the queue
+        CUSTOMER_REMOVED     // left the queue without being served
+    }
+
+    private long sequence;
+    private long nanos;
+    private Type type;
+    private Object source;
+    private Parcel parcel;
+    private Customer customer;
+    private ParcelStatus status;
+    private ParcelStatus previousStatus;
+    private double fee;
+
+    // Position in the bus; consecutive events have consecutive sequences.
+    public long getSequence() { return sequence; }
+    // System.nanoTime() when the event was published.
+    public long getNanos() { return nanos; }
+    public Type getType() { return type; }
+    // The ParcelMap or QueueOfCustomers that changed; null for
+    // PARCEL_PROCESSED, which comes from a Worker.
+    public Object getSource() { return source; }
+    public Parcel getParcel() { return parcel; }
+    public Customer getCustomer() { return customer; }
+    // The parcel's status and fee when the event was published.
+    public ParcelStatus getStatus() { return status; }
+    public ParcelStatus getPreviousStatus() { return previousStatus; }
+    public double getFee() { return fee; }
+
+    public String getId() {
+        return parcel != null ? parcel.getId() : customer != null ? customer.getId() : null;
+    }
+
+    void set(long sequence, Type type, Object source, Parcel parcel, Customer customer,
+            ParcelStatus previousStatus, double fee) {
+        this.sequence = sequence;
+        this.nanos = System.nanoTime();
+        this.type = type;
+        this.source = source;
+        this.parcel = parcel;
+        this.customer = customer;
+        this.status = parcel == null ? null : parcel.getStatus();
+        this.previousStatus = previousStatus;
+        this.fee = fee;
+    }
+
+    // Drops what the event points at once nobody will read it again.
+    void clearReferences() {
+        source = null;
+        parcel = null;
+        customer = null;
+    }
+
+    void copyFrom(ChangeEvent other) {
+        sequence = other.sequence;
+        nanos = other.nanos;
+        type = other.type;
+        source = other.source;
+        parcel = other.parcel;
+        customer = other.customer;
+        status = other.status;
+        previousStatus = other.previousStatus;
+        fee = other.fee;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(64).append(sequence).append(' ').append(type);
+        String id = getId();
+        if (id != null) {
+            text.append(' ').append(id);
+        }
+        if (previousStatus != null) {
+            text.append(' ').append(previousStatus).append("->").append(status);
+        } else if (status != null) {
+            text.append(' ').append(status);
+        }
+        if (type == Type.PARCEL_FEE_CHANGED || type == Type.PARCEL_PROCESSED) {
+            text.append(String.format(" fee=%.2f", fee));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,281 @@
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Process-wide bus of ChangeEvents, in the style of a Disruptor: a ring of
+// pre-allocated events that any thread publishes into and every subscriber
+// reads on a thread of its own, in batches. Publishing claims the next
+// sequence, fills the slot in place and marks it published; it never waits
+// for a subscriber, so a slow one cannot hold up parcel or queue changes.
+// Instead a subscriber that falls a whole ring behind is skipped forward and
+// told how many events it missed, and should re-read the state it follows.
+//
+// Each slot's sequence works as a seqlock. A producer marks the slot WRITING,
+// fills it and stores the event's sequence; a subscriber copies the event
+// and keeps it only if the slot still holds the same sequence afterwards.
+// The one wait on the publish path is for the producer that used the slot a
+// lap earlier, or a releaser clearing it, to finish with it.
+//
+// Once every subscriber has read a slot, the subscriber that read it last
+// clears its references, under the same seqlock, so the ring does not keep
+// replaced stores, parcels or customers reachable until it wraps.
+//
+// With no subscribers, publishing returns at once.
+class ChangeEventBus {
+    static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final int MAX_BATCH = 256;
+    private static final long WRITING = Long.MIN_VALUE;
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final ChangeEventBus INSTANCE = new ChangeEventBus(DEFAULT_CAPACITY);
+
+    public static ChangeEventBus getInstance() {
+        return INSTANCE;
+    }
+
+    interface Subscriber {
+        // endOfBatch marks the last event currently available, a good point
+        // to flush or repaint.
+        void onEvent(ChangeEvent event, boolean endOfBatch);
+
+        // Called, after the events before the gap, when count events were
+        // overwritten before this subscriber could read them.
+        default void onMissed(long count) {
+        }
+    }
+
+    private final ChangeEvent[] ring;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+    // Every slot before this sequence has had its references cleared.
+    private final AtomicLong released = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean hasSubscribers;
+
+    ChangeEventBus(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        ring = new ChangeEvent[size];
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            ring[i] = new ChangeEvent();
+            // As if published one lap before sequence 0.
+            sequences.set(i, i - (long) size);
+        }
+        Metrics.getInstance().gauge("events.published", cursor::get);
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    // Starts a thread named events-<name> that delivers every event published
+    // from now on to the subscriber. Close the subscription to stop it.
+    public Subscription subscribe(String name, Subscriber subscriber) {
+        Subscription subscription = new Subscription(name, subscriber);
+        subscriptions.add(subscription);
+        // Only now that it is listed, so no slot it still has to read is
+        // released under it.
+        subscription.next = cursor.get();
+        hasSubscribers = true;
+        subscription.thread.start();
+        Metrics.getInstance().gauge("events." + name + ".lag", subscription::getLag);
+        Metrics.getInstance().gauge("events." + name + ".missed", subscription::getMissed);
+        return subscription;
+    }
+
+    void parcelAdded(ParcelMap source, Parcel parcel) {
+        publish(ChangeEvent.Type.PARCEL_ADDED, source, parcel, null, null, parcel.getFee());
+    }
+
+    void parcelStatusChanged(ParcelMap source, Parcel parcel, ParcelStatus previous) {
+        publish(ChangeEvent.Type.PARCEL_STATUS_CHANGED, source, parcel, null, previous, parcel.getFee());
+    }
+
+    void parcelFeeChanged(ParcelMap source, Parcel parcel) {
+        publish(ChangeEvent.Type.PARCEL_FEE_CHANGED, source, parcel, null, null, parcel.getFee());
+    }
+
+    void parcelProcessed(Parcel parcel, double fee) {
+        publish(ChangeEvent.Type.PARCEL_PROCESSED, null, parcel, null, null, fee);
+    }
+
+    void parcelsCleared(ParcelMap source) {
+        publish(ChangeEvent.Type.PARCELS_CLEARED, source, null, null, null, 0);
+    }
+
+    void customerEnqueued(QueueOfCustomers source, Customer customer) {
+        publish(ChangeEvent.Type.CUSTOMER_ENQUEUED, source, null, customer, null, 0);
+    }
+
+    void customerDequeued(QueueOfCustomers source, Customer customer) {
+        publish(ChangeEvent.Type.CUSTOMER_DEQUEUED, source, null, customer, null, 0);
+    }
+
+    void customerRemoved(QueueOfCustomers source, Customer customer) {
+        publish(ChangeEvent.Type.CUSTOMER_REMOVED, source, null, customer, null, 0);
+    }
+
+    private void publish(ChangeEvent.Type type, Object source, Parcel parcel, Customer customer,
+            ParcelStatus previous, double fee) {
+        if (!hasSubscribers) {
+            return;
+        }
+        long sequence = cursor.getAndIncrement();
+        int index = (int) (sequence & mask);
+        // Claimed in one step, so a releaser clearing the slot's previous
+        // event and this producer never both own it.
+        while (!sequences.compareAndSet(index, sequence - ring.length, WRITING)) {
+            Thread.onSpinWait();
+        }
+        VarHandle.storeStoreFence();
+        ring[index].set(sequence, type, source, parcel, customer, previous, fee);
+        sequences.set(index, sequence);
+    }
+
+    // Clears the slots every subscriber has moved past. A slot is cleared
+    // only while it still holds the event read, so one a producer has
+    // already reused is left alone.
+    private void releaseConsumed() {
+        long upTo = cursor.get();
+        for (Subscription subscription : subscriptions) {
+            upTo = Math.min(upTo, subscription.next);
+        }
+        long from = released.get();
+        if (upTo <= from || !released.compareAndSet(from, upTo)) {
+            return;
+        }
+        for (long position = Math.max(from, upTo - ring.length); position < upTo; position++) {
+            int index = (int) (position & mask);
+            if (sequences.compareAndSet(index, position, WRITING)) {
+                ring[index].clearReferences();
+                sequences.set(index, position);
+            }
+        }
+    }
+
+    final class Subscription implements AutoCloseable {
+        private final String name;
+        private final Subscriber subscriber;
+        private final Thread thread;
+        private final ChangeEvent[] batch = new ChangeEvent[MAX_BATCH];
+        private volatile long next;
+        private volatile long missed;
+        private volatile boolean closed;
+
+        private Subscription(String name, Subscriber subscriber) {
+            this.name = name;
+            this.subscriber = subscriber;
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = new ChangeEvent();
+            }
+            this.thread = new Thread(this::run, "events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Events published but not yet delivered.
+        public long getLag() {
+            return Math.max(0, cursor.get() - next);
+        }
+
+        // Events overwritten before they could be delivered.
+        public long getMissed() {
+            return missed;
+        }
+
+        // Delivers what has already been published, then stops the thread.
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            LockSupport.unpark(thread);
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            subscriptions.remove(this);
+            hasSubscribers = !subscriptions.isEmpty();
+            releaseConsumed();
+        }
+
+        private void run() {
+            long park = MIN_PARK_NANOS;
+            while (true) {
+                boolean wasClosed = closed;
+                if (deliverBatch() > 0) {
+                    park = MIN_PARK_NANOS;
+                } else if (wasClosed) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(park);
+                    park = Math.min(park * 2, MAX_PARK_NANOS);
+                }
+            }
+        }
+
+        // Copies out up to MAX_BATCH published events and hands them over.
+        // Returns how many events were delivered or skipped.
+        private int deliverBatch() {
+            long position = next;
+            int count = 0;
+            long skipped = 0;
+            while (count < MAX_BATCH) {
+                int index = (int) (position & mask);
+                if (sequences.get(index) == position) {
+                    ChangeEvent event = batch[count];
+                    event.copyFrom(ring[index]);
+                    VarHandle.loadLoadFence();
+                    if (sequences.get(index) == position && event.getSequence() == position) {
+                        count++;
+                        position++;
+                        continue;
+                    }
+                }
+                if (cursor.get() - position <= ring.length) {
+                    break; // not published yet
+                }
+                // Lapped: the slot already belongs to a later event. Resume
+                // half a ring behind the producers to leave some headroom.
+                long resume = cursor.get() - ring.length / 2;
+                skipped = resume - position;
+                position = resume;
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                try {
+                    subscriber.onEvent(batch[i], i == count - 1);
+                } catch (RuntimeException e) {
+                    System.err.println("Error in event subscriber " + name + ": " + e.getMessage());
+                    Log.getInstance().addEntry("Error in event subscriber " + name + ": " + e.getMessage());
+                }
+                batch[i].clearReferences();
+            }
+            next = position;
+            releaseConsumed();
+            if (skipped > 0) {
+                missed += skipped;
+                try {
+                    subscriber.onMissed(skipped);
+                } catch (RuntimeException e) {
+                    System.err.println("Error in event subscriber " + name + ": " + e.getMessage());
+                }
+            }
+            return count + (int) Math.min(skipped, Integer.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+// Appends every ChangeEvent to data/logs/events.log, one line each, from the
+// bus's events-log thread; the file is flushed at the end of every batch.
+// Events the bus overwrote before they were written leave a gap line, so a
+// reader replaying the file knows it is incomplete from there. Log keeps
+// recording what the Manager was asked to do; this records what changed.
+class ChangeEventLog implements ChangeEventBus.Subscriber, AutoCloseable {
+    static final Path DEFAULT_FILE = Paths.get("data", "logs", "events.log");
+    private static final DateTimeFormatter TIME =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    // Event times are System.nanoTime() values; these turn them into wall
+    // clock time.
+    private final long baseMillis = System.currentTimeMillis();
+    private final long baseNanos = System.nanoTime();
+
+    private final Path file;
+    private final BufferedWriter writer;
+    private final ChangeEventBus.Subscription subscription;
+    private volatile boolean failed;
+
+    // Opens (or appends to) the file and starts following the bus.
+    static ChangeEventLog start(Path file) throws IOException {
+        ChangeEventLog log = new ChangeEventLog(file);
+        Runtime.getRuntime().addShutdownHook(new Thread(log::close, "events-log-shutdown"));
+        return log;
+    }
+
+    private ChangeEventLog(Path file) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.subscription = ChangeEventBus.getInstance().subscribe("log", this);
+    }
+
+    @Override
+    public void onEvent(ChangeEvent event, boolean endOfBatch) {
+        long millis = baseMillis + (event.getNanos() - baseNanos) / 1_000_000;
+        write(TIME.format(Instant.ofEpochMilli(millis)) + " " + event, endOfBatch);
+    }
+
+    @Override
+    public void onMissed(long count) {
+        write(TIME.format(Instant.now()) + " MISSED " + count + " events", true);
+    }
+
+    // Further errors after the first are dropped rather than repeated for
+    // every event.
+    private void write(String line, boolean flush) {
+        if (failed) {
+            return;
+        }
+        try {
+            writer.write(line);
+            writer.newLine();
+            if (flush) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            failed = true;
+            System.err.println("Error writing event log " + file + ": " + e.getMessage());
+            Log.getInstance().addEntry("Error writing event log " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Writes the events already published, then closes the file.
+    @Override
+    public void close() {
+        subscription.close();
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Error closing event log " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -8,24 +8,21 @@ class Customer {
     private LocalDateTime joinTime;
 
     public Customer(String id, String name) throws ValidationException {
+        this(id, name, LocalDateTime.now());
+    }
+
+    // Used when restoring a saved queue, where the original join time is known.
+    Customer(String id, String name, LocalDateTime joinTime) throws ValidationException {
         validateCustomerData(id, name);
         this.id = id;
         this.name = name;
         this.parcels = new ArrayList<>();
-        this.joinTime = LocalDateTime.now();
+        this.joinTime = joinTime;
     }
     private void validateCustomerData(String id, String name) throws ValidationException {
-        if (id == null || id.trim().isEmpty()) {
-            throw new ValidationException("Customer ID cannot be empty");
-        }
-        if (!id.matches("C\\d{3}")) {
-            throw new ValidationException("Customer ID must be in format C followed by 3 digits");
-        }
-        if (name == null || name.trim().isEmpty()) {
-            throw new ValidationException("Customer name cannot be empty");
-        }
-        if (name.length() < 2 || name.length() > 50) {
-            throw new ValidationException("Customer name must be between 2 and 50 characters");
+        ValidationResult result = Validation.checkCustomer(id, name);
+        if (!result.isOk()) {
+            throw result.toException();
         }
     }
 
@@ -34,6 +31,7 @@ class Customer {
     public String getName() { return name; }
     public List<Parcel> getParcels() { return parcels; }
     public void addParcel(Parcel parcel) { parcels.add(parcel); }
+    public boolean removeParcel(Parcel parcel) { return parcels.remove(parcel); }
       public LocalDateTime getJoinTime() { return joinTime; }
     
     @Override
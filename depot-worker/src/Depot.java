@@ -0,0 +1,16 @@
+// The operations a counter performs, as served by DepotServer. Manager
+// implements them over one queue and parcel store; DepotShards routes them
+// to partitioned Managers. Bad input comes back as an error message or a
+// ValidationException, as in Manager.
+interface Depot {
+    // Returns an error message, or null once the customer is queued.
+    String processCustomerLine(String line);
+
+    // Returns an error message, or null once the parcel is added.
+    String processParcelLine(String line);
+
+    Customer assignParcel(String customerId, String parcelId) throws ValidationException;
+
+    // Returns the customer served, or null if nobody is waiting.
+    Customer processNextCustomer() throws ValidationException;
+}
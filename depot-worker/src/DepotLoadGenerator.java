@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Drives a DepotServer with many concurrent counters and reports latency
+// percentiles per endpoint. Each counter cycles through enqueue customer,
+// add parcel, assign and process-next. IDs are limited to C000-C999 and
+// P000-P999 and the queue holds 100 customers, so with many counters a share
+// of requests are rejected; rejected requests are timed like the rest.
+//
+// Usage: java DepotLoadGenerator [counters] [requestsPerCounter] [port] [shards]
+// Without a port, or with port 0, an embedded server with a fresh,
+// unjournaled Manager (or DepotShards, given a shard count) is started on a
+// free port.
+class DepotLoadGenerator {
+    private static final String[] ENDPOINTS = {"/customers", "/parcels", "/assign", "/process-next"};
+
+    private final HttpClient client;
+    private final URI base;
+    private final int counters;
+    private final int requestsPerCounter;
+    private final long[][] latencies;
+    private final AtomicLongArray rejected = new AtomicLongArray(ENDPOINTS.length);
+    private final AtomicLongArray failed = new AtomicLongArray(ENDPOINTS.length);
+
+    DepotLoadGenerator(URI base, int counters, int requestsPerCounter, ExecutorService executor) {
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(executor)
+            .build();
+        this.base = base;
+        this.counters = counters;
+        this.requestsPerCounter = requestsPerCounter;
+        this.latencies = new long[counters][];
+    }
+
+    public void run(ExecutorService executor) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(counters);
+        for (int counter = 0; counter < counters; counter++) {
+            int id = counter;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    latencies[id] = runCounter(id);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        done.await();
+        report(System.nanoTime() - startNanos);
+    }
+
+    // Returns this counter's latencies in nanoseconds, request i at index i;
+    // the endpoint of request i is ENDPOINTS[i % ENDPOINTS.length].
+    private long[] runCounter(int counter) throws InterruptedException {
+        long[] times = new long[requestsPerCounter];
+        for (int i = 0; i < requestsPerCounter; i++) {
+            int endpoint = i % ENDPOINTS.length;
+            String customerId = String.format("C%03d", counter % 1000);
+            String parcelId = String.format("P%03d", (counter + i / ENDPOINTS.length * counters) % 1000);
+            String body = switch (endpoint) {
+                case 0 -> customerId + ",Counter " + counter;
+                case 1 -> parcelId + "," + (1 + (counter + i) % 90) + "," + ParcelType.fromCode(counter % ParcelType.count()).getDisplayName();
+                case 2 -> customerId + "," + parcelId;
+                default -> "";
+            };
+            HttpRequest request = HttpRequest.newBuilder(base.resolve(ENDPOINTS[endpoint]))
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    rejected.incrementAndGet(endpoint);
+                }
+            } catch (IOException e) {
+                failed.incrementAndGet(endpoint);
+            }
+            times[i] = System.nanoTime() - start;
+        }
+        return times;
+    }
+
+    private void report(long elapsedNanos) {
+        long total = (long) counters * requestsPerCounter;
+        System.out.printf("%d counters x %d requests in %.2f s (%.0f req/s)%n", counters, requestsPerCounter,
+            elapsedNanos / 1e9, total / (elapsedNanos / 1e9));
+        System.out.printf("%-15s %10s %10s %10s %10s %10s%n", "Endpoint", "requests", "rejected", "failed",
+            "p50 ms", "p99 ms");
+        long[] all = new long[(int) total];
+        int allCount = 0;
+        for (int endpoint = 0; endpoint < ENDPOINTS.length; endpoint++) {
+            long[] samples = new long[(int) total];
+            int count = 0;
+            for (long[] times : latencies) {
+                if (times == null) {
+                    continue;
+                }
+                for (int i = endpoint; i < times.length; i += ENDPOINTS.length) {
+                    samples[count++] = times[i];
+                    all[allCount++] = times[i];
+                }
+            }
+            printRow(ENDPOINTS[endpoint], Arrays.copyOf(samples, count), rejected.get(endpoint), failed.get(endpoint));
+        }
+        long totalRejected = 0;
+        long totalFailed = 0;
+        for (int endpoint = 0; endpoint < ENDPOINTS.length; endpoint++) {
+            totalRejected += rejected.get(endpoint);
+            totalFailed += failed.get(endpoint);
+        }
+        printRow("all", Arrays.copyOf(all, allCount), totalRejected, totalFailed);
+    }
+
+    private static void printRow(String name, long[] samples, long rejected, long failed) {
+        Arrays.sort(samples);
+        System.out.printf("%-15s %10d %10d %10d %10.2f %10.2f%n", name, samples.length, rejected, failed,
+            percentile(samples, 0.50) / 1e6, percentile(samples, 0.99) / 1e6);
+    }
+
+    // Nearest-rank percentile of sorted samples.
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    public static void main(String[] args) throws Exception {
+        int counters = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int requestsPerCounter = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        int shardCount = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        Manager manager = null;
+        DepotShards shards = null;
+        DepotServer embedded = null;
+        if (port == 0) {
+            if (shardCount > 1) {
+                shards = new DepotShards(shardCount);
+                embedded = new DepotServer(shards, 0);
+            } else {
+                manager = new Manager();
+                manager.setEnqueueTimeoutMillis(DepotServer.ENQUEUE_TIMEOUT_MILLIS);
+                embedded = new DepotServer(manager, 0);
+            }
+            embedded.start();
+            port = embedded.getPort();
+        }
+
+        ExecutorService executor = DepotServer.newPerRequestExecutor();
+        try {
+            new DepotLoadGenerator(URI.create("http://localhost:" + port), counters, requestsPerCounter, executor)
+                .run(executor);
+            if (manager != null) {
+                QueueOfCustomers queue = manager.getCustomerQueue();
+                System.out.printf("Queue: depth %d/%d, peak %d, producers blocked %.1f ms, rejected when full %d%n",
+                    queue.size(), queue.getCapacity(), queue.getPeakDepth(),
+                    queue.getProducerBlockedNanos() / 1e6, queue.getRejectedCount());
+            }
+            if (shards != null) {
+                System.out.printf("Shards: %d, queued %d, parcels %d%n",
+                    shards.getShardCount(), shards.queueSize(), shards.parcelCount());
+            }
+        } finally {
+            executor.shutdownNow();
+            if (embedded != null) {
+                embedded.stop(0);
+            }
+            if (shards != null) {
+                shards.close();
+            }
+            Log.getInstance().close();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Embedded HTTP front end that lets many counters work against one depot: a
+// Manager, or DepotShards when started with a shard count. Each exchange runs
+// on its own virtual thread when the JDK provides them (21+) and on a cached
+// pool of platform threads otherwise, so a counter that is waiting on a
+// journal fsync never holds up the others.
+//
+// Request bodies use the same CSV lines as the data files:
+//   POST /customers      C001,Alice Smith
+//   POST /parcels        P001,2.5,Fragile
+//   POST /assign         C001,P001
+//   POST /process-next   (no body)
+// Replies are plain text: 200 on success, 400 with the validation message on
+// bad input, 404 when there is no customer to process.
+class DepotServer {
+    static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 4096;
+    // A counter enqueueing into a full queue waits this long for a place.
+    static final long ENQUEUE_TIMEOUT_MILLIS = 2000;
+
+    private final Depot depot;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Give a Manager its enqueue timeout (ENQUEUE_TIMEOUT_MILLIS) first.
+    public DepotServer(Depot depot, int port) throws IOException {
+        this.depot = depot;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.executor = newPerRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/customers", exchange -> handle(exchange, this::enqueueCustomer));
+        server.createContext("/parcels", exchange -> handle(exchange, this::addParcel));
+        server.createContext("/assign", exchange -> handle(exchange, this::assign));
+        server.createContext("/process-next", exchange -> handle(exchange, this::processNext));
+    }
+
+    public void start() {
+        server.start();
+        Log.getInstance().addEntry("Depot server listening on port " + getPort());
+    }
+
+    // Stops accepting requests and waits up to delaySeconds for in-flight ones.
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor is looked up reflectively so
+    // the server still builds and runs on JDK 17.
+    static ExecutorService newPerRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static final class Reply {
+        final int status;
+        final String body;
+
+        Reply(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private interface Endpoint {
+        Reply serve(String body);
+    }
+
+    // Every request gets a reply, even when the endpoint fails with an Error,
+    // and the exchange is always closed so the client is never left hanging.
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        try {
+            Reply reply;
+            try (InputStream in = exchange.getRequestBody()) {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    reply = new Reply(405, "Use POST");
+                } else {
+                    reply = endpoint.serve(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            } catch (Throwable e) {
+                Log.getInstance().addEntry("Error serving " + exchange.getRequestURI() + ": " + e);
+                reply = new Reply(500, "Internal error");
+            }
+            byte[] bytes = reply.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(reply.status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Reply enqueueCustomer(String body) {
+        String error = depot.processCustomerLine(body.trim());
+        return error == null ? new Reply(200, "Queued") : new Reply(400, error);
+    }
+
+    private Reply addParcel(String body) {
+        String error = depot.processParcelLine(body.trim());
+        return error == null ? new Reply(200, "Added") : new Reply(400, error);
+    }
+
+    private Reply assign(String body) {
+        String[] parts = body.trim().split(",");
+        if (parts.length != 2) {
+            return new Reply(400, "Invalid format. Expected: CustomerID,ParcelID");
+        }
+        try {
+            Customer customer = depot.assignParcel(parts[0].trim(), parts[1].trim());
+            return new Reply(200, "Assigned to " + customer.getName());
+        } catch (ValidationException e) {
+            return new Reply(400, e.getMessage());
+        }
+    }
+
+    private Reply processNext(String body) {
+        Customer customer;
+        try {
+            customer = depot.processNextCustomer();
+        } catch (ValidationException e) {
+            return new Reply(500, e.getMessage());
+        }
+        if (customer == null) {
+            return new Reply(404, "No customers waiting");
+        }
+        double total = 0;
+        for (Parcel parcel : customer.getParcels()) {
+            total += parcel.getFee();
+        }
+        return new Reply(200, String.format("Processed %s: %d parcels, $%.2f",
+            customer.getId(), customer.getParcels().size(), total));
+    }
+
+    // Usage: java DepotServer [port] [shards]
+    // With more than one shard the depot is a fresh DepotShards, which does
+    // not journal and refuses customers at once when a shard's queue is full.
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int shardCount = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        Metrics.getInstance().startReporting();
+        try {
+            ChangeEventLog.start(ChangeEventLog.DEFAULT_FILE);
+        } catch (IOException e) {
+            System.err.println("Event log disabled: " + e.getMessage());
+        }
+        if (shardCount > 1) {
+            DepotShards shards = new DepotShards(shardCount);
+            shards.loadDefaultTariffs();
+            DepotServer server = new DepotServer(shards, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop(2);
+                shards.close();
+            }, "depot-server-shutdown"));
+            server.start();
+            System.out.println("Depot server listening on port " + server.getPort() + " with "
+                + shardCount + " shards");
+            return;
+        }
+
+        Manager manager = new Manager();
+        manager.setEnqueueTimeoutMillis(ENQUEUE_TIMEOUT_MILLIS);
+        try {
+            manager.enableJournal(Manager.DEFAULT_SNAPSHOT_FILE, Manager.DEFAULT_JOURNAL_FILE);
+        } catch (IOException e) {
+            System.err.println("Journal disabled: " + e.getMessage());
+        }
+        manager.loadDefaultTariffs();
+        DepotServer server = new DepotServer(manager, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(2);
+            manager.closeJournal();
+        }, "depot-server-shutdown"));
+        server.start();
+        System.out.println("Depot server listening on port " + server.getPort());
+    }
+}
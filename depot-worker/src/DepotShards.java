@@ -0,0 +1,374 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sharded depot: customers and parcels are split over N partitions by a hash
+// of their ID. Each partition is a Manager of its own that only its shard
+// thread ever calls, fed through a bounded mailbox that the thread drains in
+// batches; the Manager's locks are therefore never contended, and shards run
+// side by side without sharing anything mutable. The methods here are the
+// router: they post the call to the owning shard and wait for its answer.
+// Calls for different shards proceed in parallel; calls for one shard run
+// one at a time in arrival order. A full mailbox makes callers wait.
+//
+// Assigning a parcel to a customer on another shard takes two steps, each on
+// its own shard's thread, with the calling thread coordinating so that no
+// shard thread ever waits for another:
+//   1. reserve: the parcel's shard checks the parcel and makes the customer
+//      its owner, which refuses it to any other assignment from then on;
+//   2. attach: the customer's shard adds the parcel to the customer.
+// If the attach fails (the customer is unknown or has just been served or
+// left) the parcel's shard releases the reservation. Until then the parcel
+// shows the customer as its owner. When a customer leaves, the shards
+// holding their parcels are told to release them in the same way.
+//
+// A customer's parcels may live on other shards, and serving the customer
+// sets their fee and status from the customer's shard thread. Parcel and
+// ParcelMap already make those updates safe from any thread; what stays
+// single-writer is which parcels, customers and owners each shard holds.
+//
+// Queue order holds within a shard, not across shards: processNextCustomer
+// takes the shards in turn. The shards do not journal, since a cross-shard
+// assignment would need one log spanning both shards to replay correctly.
+class DepotShards implements Depot, AutoCloseable {
+    static final int MAILBOX_CAPACITY = 1024;
+    private static final int MAX_BATCH = 256;
+    private static final Metrics METRICS = Metrics.getInstance();
+
+    interface ShardTask<T> {
+        T run(Manager manager) throws ValidationException;
+    }
+
+    private static final class Shard {
+        private static final Runnable SHUTDOWN = () -> { };
+
+        // A posted task and the future its caller waits on. Anything the task
+        // throws, Errors included, fails the future instead of the thread.
+        private static final class Call<T> implements Runnable {
+            final ShardTask<T> task;
+            final Manager manager;
+            final CompletableFuture<T> result = new CompletableFuture<>();
+
+            Call(ShardTask<T> task, Manager manager) {
+                this.task = task;
+                this.manager = manager;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    result.complete(task.run(manager));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }
+
+        final int index;
+        final Manager manager = new Manager();
+        final ArrayBlockingQueue<Runnable> mailbox = new ArrayBlockingQueue<>(MAILBOX_CAPACITY);
+        final Thread writer;
+        volatile boolean closed;
+
+        Shard(int index) {
+            this.index = index;
+            this.writer = new Thread(this::run, "depot-shard-" + index);
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+
+        <T> CompletableFuture<T> submit(ShardTask<T> task) throws ValidationException {
+            if (closed) {
+                throw new ValidationException("Depot shard " + index + " is closed");
+            }
+            Call<T> call = new Call<>(task, manager);
+            try {
+                mailbox.put(call);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ValidationException("Interrupted while waiting for room in shard " + index);
+            }
+            if (closed) {
+                // Posted while the shard was closing: the writer either ran it
+                // before stopping or never will. Once it has stopped, fail
+                // whatever is left so no caller waits forever.
+                awaitStopped();
+                failPending();
+            }
+            return call.result;
+        }
+
+        // Work that was posted before close still runs. If the thread stops
+        // for any other reason the shard closes and pending calls fail.
+        private void run() {
+            List<Runnable> batch = new ArrayList<>(MAX_BATCH);
+            boolean shutdown = false;
+            try {
+                while (!shutdown || !mailbox.isEmpty()) {
+                    try {
+                        batch.add(mailbox.take());
+                    } catch (InterruptedException e) {
+                        continue;
+                    }
+                    mailbox.drainTo(batch, MAX_BATCH - 1);
+                    for (Runnable message : batch) {
+                        if (message == SHUTDOWN) {
+                            shutdown = true;
+                        } else {
+                            message.run();
+                        }
+                    }
+                    batch.clear();
+                }
+            } finally {
+                closed = true;
+                failPending();
+            }
+        }
+
+        private void failPending() {
+            List<Runnable> left = new ArrayList<>();
+            mailbox.drainTo(left);
+            for (Runnable message : left) {
+                if (message instanceof Call) {
+                    ((Call<?>) message).result.completeExceptionally(
+                        new ValidationException("Depot shard " + index + " is closed"));
+                }
+            }
+        }
+
+        private void awaitStopped() {
+            boolean interrupted = false;
+            while (writer.isAlive()) {
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void close() {
+            closed = true;
+            try {
+                mailbox.put(SHUTDOWN);
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final Shard[] shards;
+    private final AtomicInteger nextToServe = new AtomicInteger();
+
+    public DepotShards(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1");
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+        // Each Manager published its own queue and parcel gauges; report the
+        // totals instead.
+        METRICS.gauge("queue.depth", this::queueSize);
+        METRICS.gauge("parcels.count", this::parcelCount);
+        METRICS.gauge("shards.count", () -> shards.length);
+        METRICS.gauge("shards.mailboxDepth", () -> {
+            long depth = 0;
+            for (Shard shard : shards) {
+                depth += shard.mailbox.size();
+            }
+            return depth;
+        });
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Customers and parcels with the same ID always land on the same shard,
+    // so duplicates are still refused.
+    int shardFor(String id) {
+        int hash = id.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    // Runs the task on the shard's thread and waits for the result.
+    <T> T call(int shard, ShardTask<T> task) throws ValidationException {
+        return await(shards[shard].submit(task), shard);
+    }
+
+    public void loadDefaultTariffs() {
+        // The tariff is process-wide; loading it once covers every shard.
+        shards[0].manager.loadDefaultTariffs();
+    }
+
+    @Override
+    public String processCustomerLine(String line) {
+        try {
+            return call(shardFor(leadingId(line)), manager -> manager.processCustomerLine(line));
+        } catch (ValidationException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Override
+    public String processParcelLine(String line) {
+        try {
+            return call(shardFor(leadingId(line)), manager -> manager.processParcelLine(line));
+        } catch (ValidationException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Override
+    public Customer assignParcel(String customerId, String parcelId) throws ValidationException {
+        int customerShard = shardFor(customerId);
+        int parcelShard = shardFor(parcelId);
+        if (customerShard == parcelShard) {
+            return call(customerShard, manager -> manager.assignParcel(customerId, parcelId));
+        }
+        Parcel parcel = call(parcelShard, manager -> manager.reserveParcel(customerId, parcelId));
+        try {
+            return call(customerShard, manager -> manager.attachParcel(customerId, parcel));
+        } catch (ValidationException e) {
+            call(parcelShard, manager -> {
+                manager.releaseParcel(customerId, parcel);
+                return null;
+            });
+            throw e;
+        }
+    }
+
+    // Serves the next customer of the next shard in turn that has one.
+    @Override
+    public Customer processNextCustomer() throws ValidationException {
+        int start = Math.floorMod(nextToServe.getAndIncrement(), shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            Customer customer = call((start + i) % shards.length, Manager::processNextCustomer);
+            if (customer != null) {
+                return customer;
+            }
+        }
+        return null;
+    }
+
+    // Every shard serves its whole queue at the same time. Returns how many
+    // customers were served.
+    public int processAllCustomers() throws ValidationException {
+        List<CompletableFuture<Integer>> results = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            results.add(shard.submit(manager -> {
+                int served = 0;
+                while (manager.processNextCustomer() != null) {
+                    served++;
+                }
+                return served;
+            }));
+        }
+        int served = 0;
+        for (int i = 0; i < results.size(); i++) {
+            served += await(results.get(i), i);
+        }
+        return served;
+    }
+
+    // The customer's parcels on other shards are released there afterwards.
+    public Customer removeCustomerById(String customerId) throws ValidationException {
+        int customerShard = shardFor(customerId);
+        Customer customer = call(customerShard, manager -> manager.removeCustomerById(customerId));
+        if (customer == null) {
+            return null;
+        }
+        for (Parcel parcel : customer.getParcels()) {
+            int parcelShard = shardFor(parcel.getId());
+            if (parcelShard != customerShard) {
+                call(parcelShard, manager -> {
+                    manager.releaseParcel(customerId, parcel);
+                    return null;
+                });
+            }
+        }
+        return customer;
+    }
+
+    public Customer findCustomer(String customerId) throws ValidationException {
+        return call(shardFor(customerId), manager -> manager.getCustomerQueue().findById(customerId));
+    }
+
+    public Parcel findParcelById(String parcelId) throws ValidationException {
+        return call(shardFor(parcelId), manager -> manager.findParcelById(parcelId));
+    }
+
+    public String findParcelOwner(String parcelId) throws ValidationException {
+        return call(shardFor(parcelId), manager -> manager.findParcelOwner(parcelId));
+    }
+
+    // Asks every shard, since the parcels may be anywhere. Parcels come in
+    // shard order, and in assignment order within a shard.
+    public List<Parcel> getParcelsForCustomer(String customerId) throws ValidationException {
+        List<Parcel> parcels = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            parcels.addAll(call(i, manager -> manager.getParcelsForCustomer(customerId)));
+        }
+        return parcels;
+    }
+
+    // Monitoring reads: the counts are read without going through the
+    // mailboxes, so they are current to within calls in flight.
+    public int queueSize() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.manager.getCustomerQueue().size();
+        }
+        return size;
+    }
+
+    public int parcelCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.manager.getParcelMap().size();
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.close();
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> result, int shard) throws ValidationException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValidationException("Interrupted while waiting for shard " + shard);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ValidationException) {
+                throw (ValidationException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        }
+    }
+
+    // The ID a data line starts with; a malformed line goes to whichever
+    // shard its text hashes to, which reports the error.
+    private static String leadingId(String line) {
+        int comma = line.indexOf(',');
+        return (comma < 0 ? line : line.substring(0, comma)).trim();
+    }
+}
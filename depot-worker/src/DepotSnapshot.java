@@ -0,0 +1,314 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Versioned binary snapshot of the depot: parcels, the customer queue in order
+// with join times, which parcels each queued customer is collecting, and the
+// journal position the snapshot covers.
+//
+// Layout: magic (int), version (short), block count (int), then per block:
+// block type (byte), payload length (int), CRC32 of payload (int), payload.
+// Strings are a short byte length followed by UTF-8 bytes.
+class DepotSnapshot {
+    private static final int MAGIC = 0x44504F54; // "DPOT"
+    private static final short VERSION = 1;
+    private static final byte BLOCK_PARCELS = 1;
+    private static final byte BLOCK_QUEUE = 2;
+    private static final byte BLOCK_ASSIGNMENTS = 3;
+    private static final byte BLOCK_JOURNAL = 4;
+    private static final int HEADER_BYTES = 4 + 2 + 4;
+    private static final int BLOCK_HEADER_BYTES = 1 + 4 + 4;
+    private static final int LOAD_BATCH_SIZE = 4096;
+
+    private final ParcelMap parcelMap;
+    private final QueueOfCustomers customerQueue;
+    private final long journalLsn;
+
+    DepotSnapshot(ParcelMap parcelMap, QueueOfCustomers customerQueue) {
+        this(parcelMap, customerQueue, 0);
+    }
+
+    // journalLsn is the last journal record already reflected in this state;
+    // replay after a restart starts from the record after it.
+    DepotSnapshot(ParcelMap parcelMap, QueueOfCustomers customerQueue, long journalLsn) {
+        this.parcelMap = parcelMap;
+        this.customerQueue = customerQueue;
+        this.journalLsn = journalLsn;
+    }
+
+    public ParcelMap getParcelMap() {
+        return parcelMap;
+    }
+
+    public QueueOfCustomers getCustomerQueue() {
+        return customerQueue;
+    }
+
+    public long getJournalLsn() {
+        return journalLsn;
+    }
+
+    // Writes to a temporary file first and renames it into place, so a crash
+    // mid-write never leaves a truncated snapshot behind. The directory is
+    // synced after the rename so the new snapshot is durable before the
+    // caller compacts the journal behind it.
+    public void write(Path file) throws IOException {
+        List<Customer> customers = customerQueue.getCustomers();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putShort(VERSION).putInt(4).flip();
+            writeFully(channel, header);
+            writeBlock(channel, BLOCK_JOURNAL, ByteBuffer.allocate(8).putLong(0, journalLsn));
+            writeBlock(channel, BLOCK_PARCELS, encodeParcels());
+            writeBlock(channel, BLOCK_QUEUE, encodeQueue(customers));
+            writeBlock(channel, BLOCK_ASSIGNMENTS, encodeAssignments(customers));
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(file.toAbsolutePath().getParent());
+    }
+
+    // Windows cannot open a directory as a channel; NTFS journals the rename
+    // itself, so there is nothing to sync there.
+    private static void syncDirectory(Path dir) throws IOException {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    public static DepotSnapshot read(Path file) throws IOException, ValidationException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new ValidationException("Not a depot snapshot: " + file);
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new ValidationException("Unsupported snapshot version " + version);
+            }
+
+            ParcelMap parcels = new ParcelMap();
+            QueueOfCustomers queue = new QueueOfCustomers();
+            long journalLsn = 0;
+            int blocks = buffer.getInt();
+            for (int i = 0; i < blocks; i++) {
+                if (buffer.remaining() < BLOCK_HEADER_BYTES) {
+                    throw new ValidationException("Snapshot is truncated");
+                }
+                byte type = buffer.get();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new ValidationException("Snapshot is truncated");
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+
+                CRC32 crc = new CRC32();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    throw new ValidationException("Checksum mismatch in snapshot block " + type);
+                }
+                try {
+                    switch (type) {
+                        case BLOCK_JOURNAL -> journalLsn = payload.getLong();
+                        case BLOCK_PARCELS -> decodeParcels(payload, parcels);
+                        case BLOCK_QUEUE -> decodeQueue(payload, queue);
+                        case BLOCK_ASSIGNMENTS -> decodeAssignments(payload, queue, parcels);
+                        default -> { } // Unknown blocks from newer writers are skipped.
+                    }
+                } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                    throw new ValidationException("Malformed snapshot block " + type);
+                }
+            }
+            return new DepotSnapshot(parcels, queue, journalLsn);
+        }
+    }
+
+    private ByteBuffer encodeParcels() {
+        Buffer out = new Buffer(1024 * 64);
+        int countPosition = out.reserveInt();
+        int count = 0;
+        for (Parcel parcel : parcelMap.getAllParcels()) {
+            out.putString(parcel.getId());
+            out.ensure(8 + 1 + 1 + 1 + 8);
+            out.buffer.putDouble(parcel.getWeight());
+            out.buffer.put((byte) parcel.getParcelType().ordinal());
+            out.buffer.put((byte) parcel.getStatus().ordinal());
+            out.buffer.put((byte) (parcel.isProcessed() ? 1 : 0));
+            out.buffer.putDouble(parcel.getFee());
+            String owner = parcel.getAssignedCustomerId();
+            out.putString(owner == null ? "" : owner);
+            count++;
+        }
+        out.buffer.putInt(countPosition, count);
+        return out.finish();
+    }
+
+    private static ByteBuffer encodeQueue(List<Customer> customers) {
+        Buffer out = new Buffer(1024);
+        out.ensure(4);
+        out.buffer.putInt(customers.size());
+        for (Customer customer : customers) {
+            out.putString(customer.getId());
+            out.putString(customer.getName());
+            out.ensure(8 + 4);
+            out.buffer.putLong(customer.getJoinTime().toEpochSecond(ZoneOffset.UTC));
+            out.buffer.putInt(customer.getJoinTime().getNano());
+        }
+        return out.finish();
+    }
+
+    private static ByteBuffer encodeAssignments(List<Customer> customers) {
+        Buffer out = new Buffer(1024);
+        out.ensure(4);
+        out.buffer.putInt(customers.size());
+        for (Customer customer : customers) {
+            out.putString(customer.getId());
+            out.ensure(4);
+            out.buffer.putInt(customer.getParcels().size());
+            for (Parcel parcel : customer.getParcels()) {
+                out.putString(parcel.getId());
+            }
+        }
+        return out.finish();
+    }
+
+    private static void decodeParcels(ByteBuffer in, ParcelMap parcels) throws ValidationException {
+        int count = in.getInt();
+        List<Parcel> batch = new ArrayList<>(Math.min(count, LOAD_BATCH_SIZE));
+        for (int i = 0; i < count; i++) {
+            String id = getString(in);
+            double weight = in.getDouble();
+            byte type = in.get();
+            ParcelStatus status = ParcelStatus.values()[in.get()];
+            boolean processed = in.get() != 0;
+            double fee = in.getDouble();
+            String owner = getString(in);
+
+            Parcel parcel = new Parcel(id, weight, ParcelType.fromCode(type).getDisplayName());
+            parcel.setStatus(status);
+            parcel.setProcessed(processed);
+            parcel.setFee(fee);
+            if (!owner.isEmpty()) {
+                parcel.setAssignedCustomerId(owner);
+            }
+            batch.add(parcel);
+            if (batch.size() == LOAD_BATCH_SIZE) {
+                addBatch(parcels, batch);
+            }
+        }
+        addBatch(parcels, batch);
+    }
+
+    private static void addBatch(ParcelMap parcels, List<Parcel> batch) throws ValidationException {
+        if (!parcels.addParcels(batch).isEmpty()) {
+            throw new ValidationException("Snapshot contains duplicate parcel IDs");
+        }
+        batch.clear();
+    }
+
+    private static void decodeQueue(ByteBuffer in, QueueOfCustomers queue) throws ValidationException {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String id = getString(in);
+            String name = getString(in);
+            LocalDateTime joinTime = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+            queue.addCustomer(new Customer(id, name, joinTime));
+        }
+    }
+
+    private static void decodeAssignments(ByteBuffer in, QueueOfCustomers queue, ParcelMap parcels)
+            throws ValidationException {
+        int customers = in.getInt();
+        for (int i = 0; i < customers; i++) {
+            Customer customer = queue.findById(getString(in));
+            int count = in.getInt();
+            for (int j = 0; j < count; j++) {
+                Parcel parcel = parcels.findParcel(getString(in));
+                if (customer == null || parcel == null) {
+                    throw new ValidationException("Snapshot assignment refers to an unknown customer or parcel");
+                }
+                customer.addParcel(parcel);
+                // Older snapshots did not record owners on the parcels.
+                parcel.setAssignedCustomerId(customer.getId());
+            }
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBlock(FileChannel channel, byte type, ByteBuffer payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        header.put(type).putInt(payload.remaining()).putInt((int) crc.getValue()).flip();
+        writeFully(channel, header);
+        writeFully(channel, payload);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Growable heap buffer used to assemble one block before it is checksummed.
+    private static final class Buffer {
+        ByteBuffer buffer;
+
+        Buffer(int initialCapacity) {
+            buffer = ByteBuffer.allocate(initialCapacity);
+        }
+
+        void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+                ByteBuffer grown = ByteBuffer.allocate(capacity);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+
+        int reserveInt() {
+            ensure(4);
+            int position = buffer.position();
+            buffer.putInt(0);
+            return position;
+        }
+
+        void putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(2 + bytes.length);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+
+        ByteBuffer finish() {
+            return buffer.flip();
+        }
+    }
+}
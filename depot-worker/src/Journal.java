@@ -0,0 +1,352 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Write-ahead journal of Manager mutations. Callers hand records to a single
+// committer thread and wait; the committer writes everything that queued up
+// while the previous fsync was running and syncs once for the whole group.
+//
+// Record layout: body length (int), CRC32 of body (int), then the body:
+// LSN (long), record type (byte), field count (short), and each field as a
+// short byte length plus UTF-8 bytes.
+class Journal implements AutoCloseable {
+    enum RecordType {
+        ADD_PARCEL,
+        ADD_CUSTOMER,
+        REMOVE_NEXT_CUSTOMER,
+        REMOVE_CUSTOMER,
+        ASSIGN_PARCEL,
+        PROCESS_NEXT_CUSTOMER,
+        PROCESS_ALL_CUSTOMERS,
+        REASSIGN_PARCEL,
+        ASSIGN_PARCELS,
+        SET_TARIFF
+    }
+
+    static final class Record {
+        final long lsn;
+        final RecordType type;
+        final String[] fields;
+
+        Record(long lsn, RecordType type, String[] fields) {
+            this.lsn = lsn;
+            this.type = type;
+            this.fields = fields;
+        }
+    }
+
+    private static final int MAX_GROUP = 1024;
+
+    // A queued request for the committer: either a record to append or, when
+    // type is null, a compaction up to compactUpTo.
+    private static final class Pending {
+        final RecordType type;
+        final String[] fields;
+        final long compactUpTo;
+        final CompletableFuture<Long> done = new CompletableFuture<>();
+
+        Pending(RecordType type, String[] fields, long compactUpTo) {
+            this.type = type;
+            this.fields = fields;
+            this.compactUpTo = compactUpTo;
+        }
+    }
+
+    private static final Pending SHUTDOWN = new Pending(null, new String[0], 0);
+
+    private final Path file;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private FileChannel channel;
+    private volatile long lastLsn;
+    private volatile long recordsSinceCompaction;
+    private volatile boolean closed;
+    // Set when a failed write could not be undone; the file may then hold a
+    // torn record, so nothing more is appended after it.
+    private volatile IOException failure;
+
+    private Journal(Path file, FileChannel channel, long lastLsn, long records) {
+        this.file = file;
+        this.channel = channel;
+        this.lastLsn = lastLsn;
+        this.recordsSinceCompaction = records;
+        this.committer = new Thread(this::runCommitter, "journal-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    // Replays every intact record with an LSN above afterLsn, drops a torn
+    // tail left by a crash, and opens the journal for appending.
+    public static Journal open(Path file, long afterLsn, Consumer<Record> replay) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long lastLsn = afterLsn;
+        long records = 0;
+        long validLength = 0;
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        Record record;
+        while ((record = readRecord(buffer)) != null) {
+            validLength = buffer.position();
+            records++;
+            if (record.lsn > afterLsn) {
+                replay.accept(record);
+            }
+            lastLsn = Math.max(lastLsn, record.lsn);
+        }
+        channel.truncate(validLength);
+        channel.position(validLength);
+        return new Journal(file, channel, lastLsn, records);
+    }
+
+    public long append(RecordType type, String... fields) throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+        checkNotFailed();
+        Pending pending = new Pending(type, fields, 0);
+        queue.add(pending);
+        return await(pending);
+    }
+
+    // Rewrites the journal keeping only records newer than upToLsn, i.e. those
+    // not yet covered by the snapshot that was just written.
+    public void compact(long upToLsn) throws IOException {
+        checkNotFailed();
+        Pending pending = new Pending(null, new String[0], upToLsn);
+        queue.add(pending);
+        await(pending);
+    }
+
+    public long getLastLsn() {
+        return lastLsn;
+    }
+
+    public long getRecordsSinceCompaction() {
+        return recordsSinceCompaction;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(SHUTDOWN);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void checkNotFailed() throws IOException {
+        IOException cause = failure;
+        if (cause != null) {
+            throw new IOException("Journal failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static long await(Pending pending) throws IOException {
+        try {
+            return pending.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for journal commit", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                : new IOException(e.getCause());
+        }
+    }
+
+    private void runCommitter() {
+        List<Pending> group = new ArrayList<>(MAX_GROUP);
+        while (true) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(group, MAX_GROUP - 1);
+            boolean shutdown = commit(group);
+            group.clear();
+            if (shutdown) {
+                return;
+            }
+        }
+    }
+
+    private boolean commit(List<Pending> group) {
+        List<Pending> written = new ArrayList<>(group.size());
+        ByteBuffer out = ByteBuffer.allocate(4096);
+        long lsn = lastLsn;
+        boolean shutdown = false;
+        try {
+            for (Pending pending : group) {
+                if (pending == SHUTDOWN) {
+                    shutdown = true;
+                } else if (pending.type == null) {
+                    // Flush what is already grouped so the rewrite sees it.
+                    out = flushGroup(out, written, lsn);
+                    rewriteWithout(pending.compactUpTo);
+                    pending.done.complete(lastLsn);
+                } else {
+                    out = encode(out, ++lsn, pending.type, pending.fields);
+                    written.add(pending);
+                }
+            }
+            flushGroup(out, written, lsn);
+        } catch (IOException e) {
+            if (!channel.isOpen()) {
+                // A compaction failed between closing and reopening the file.
+                failure = e;
+            }
+            for (Pending pending : group) {
+                pending.done.completeExceptionally(e);
+            }
+            shutdown = group.contains(SHUTDOWN);
+        }
+        return shutdown;
+    }
+
+    private ByteBuffer flushGroup(ByteBuffer out, List<Pending> written, long lsn) throws IOException {
+        if (written.isEmpty()) {
+            return out;
+        }
+        out.flip();
+        long start = channel.position();
+        try {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            undoWrite(start, e);
+            throw e;
+        }
+        lastLsn = lsn;
+        recordsSinceCompaction += written.size();
+        for (Pending pending : written) {
+            pending.done.complete(lsn);
+        }
+        written.clear();
+        out.clear();
+        return out;
+    }
+
+    // Cuts off whatever part of a failed group reached the file, so the next
+    // group is not written after a torn record (open() would stop there and
+    // drop it). If even that fails the journal stops taking records.
+    private void undoWrite(long start, IOException cause) {
+        try {
+            channel.truncate(start);
+            channel.position(start);
+            channel.force(false);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            failure = cause;
+        }
+    }
+
+    private void rewriteWithout(long upToLsn) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer existing = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        ByteBuffer kept = ByteBuffer.allocate(4096);
+        long records = 0;
+        Record record;
+        while ((record = readRecord(existing)) != null) {
+            if (record.lsn > upToLsn) {
+                kept = encode(kept, record.lsn, record.type, record.fields);
+                records++;
+            }
+        }
+        kept.flip();
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (kept.hasRemaining()) {
+                tempChannel.write(kept);
+            }
+            tempChannel.force(true);
+        }
+        channel.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        recordsSinceCompaction = records;
+    }
+
+    private static ByteBuffer encode(ByteBuffer out, long lsn, RecordType type, String[] fields) {
+        byte[][] encoded = new byte[fields.length][];
+        int bodyLength = 8 + 1 + 2;
+        for (int i = 0; i < fields.length; i++) {
+            encoded[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+            bodyLength += 2 + encoded[i].length;
+        }
+        if (out.remaining() < 8 + bodyLength) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + 8 + bodyLength));
+            out.flip();
+            grown.put(out);
+            out = grown;
+        }
+        int start = out.position();
+        out.putInt(bodyLength).putInt(0);
+        int bodyStart = out.position();
+        out.putLong(lsn).put((byte) type.ordinal()).putShort((short) fields.length);
+        for (byte[] field : encoded) {
+            out.putShort((short) field.length).put(field);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out.duplicate().position(bodyStart).limit(out.position()));
+        out.putInt(start + 4, (int) crc.getValue());
+        return out;
+    }
+
+    // Returns null at end of file or at the first torn or corrupt record.
+    private static Record readRecord(ByteBuffer in) {
+        if (in.remaining() < 8) {
+            return null;
+        }
+        int start = in.position();
+        int bodyLength = in.getInt();
+        int checksum = in.getInt();
+        if (bodyLength < 11 || bodyLength > in.remaining()) {
+            in.position(start);
+            return null;
+        }
+        ByteBuffer body = in.slice(in.position(), bodyLength);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            in.position(start);
+            return null;
+        }
+        try {
+            long lsn = body.getLong();
+            RecordType type = RecordType.values()[body.get()];
+            String[] fields = new String[body.getShort()];
+            for (int i = 0; i < fields.length; i++) {
+                byte[] bytes = new byte[body.getShort() & 0xFFFF];
+                body.get(bytes);
+                fields[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            in.position(in.position() + bodyLength);
+            return new Record(lsn, type, fields);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            in.position(start);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Serves customers from several lanes instead of one FIFO line, so someone
+// collecting a single parcel does not wait behind someone collecting forty.
+// Every lane has its own worker thread; a worker whose lane is empty steals
+// the oldest customer from the longest other lane. Waits are measured from
+// Customer.getJoinTime() to the moment service starts and kept per lane.
+class LaneScheduler implements AutoCloseable {
+    enum Lane {
+        EXPRESS,
+        PRIORITY,
+        STANDARD
+    }
+
+    static final int EXPRESS_MAX_PARCELS = 3;
+    private static final long IDLE_WAIT_MILLIS = 50;
+
+    // Per-lane wait samples in nanoseconds.
+    static final class LaneStats {
+        private long[] samples = new long[64];
+        private int count;
+
+        synchronized void record(long waitNanos) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = waitNanos;
+        }
+
+        public synchronized int getCount() {
+            return count;
+        }
+
+        public synchronized double getMeanMillis() {
+            if (count == 0) {
+                return 0;
+            }
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                total += samples[i];
+            }
+            return total / (double) count / 1e6;
+        }
+
+        // Nearest-rank percentile, p in (0, 1].
+        public synchronized double getPercentileMillis(double p) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int) Math.ceil(p * count) - 1)] / 1e6;
+        }
+
+        synchronized void addAll(LaneStats other) {
+            synchronized (other) {
+                for (int i = 0; i < other.count; i++) {
+                    record(other.samples[i]);
+                }
+            }
+        }
+    }
+
+    private final Consumer<Customer> service;
+    private final Function<Customer, Lane> classifier;
+    // A lane's line and its length; the deque's own size() walks the whole
+    // deque, and workers compare lengths on every steal attempt.
+    private static final class LaneQueue {
+        final ConcurrentLinkedDeque<Customer> customers = new ConcurrentLinkedDeque<>();
+        final AtomicInteger length = new AtomicInteger();
+
+        void add(Customer customer) {
+            customers.addLast(customer);
+            length.incrementAndGet();
+        }
+
+        Customer poll() {
+            Customer customer = customers.pollFirst();
+            if (customer != null) {
+                length.decrementAndGet();
+            }
+            return customer;
+        }
+    }
+
+    private final List<LaneQueue> lanes = new ArrayList<>();
+    private final LaneStats[] stats = new LaneStats[Lane.values().length];
+    private final Thread[] workers = new Thread[Lane.values().length];
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    private volatile boolean closed;
+
+    public LaneScheduler(Consumer<Customer> service) {
+        this(service, LaneScheduler::classify);
+    }
+
+    // A classifier that sends everyone to one lane turns this into a plain
+    // FIFO line served by the same number of workers, for comparison.
+    LaneScheduler(Consumer<Customer> service, Function<Customer, Lane> classifier) {
+        this.service = service;
+        this.classifier = classifier;
+        for (Lane lane : Lane.values()) {
+            lanes.add(new LaneQueue());
+            stats[lane.ordinal()] = new LaneStats();
+        }
+        for (Lane lane : Lane.values()) {
+            workers[lane.ordinal()] = new Thread(() -> runWorker(lane),
+                "lane-" + lane.name().toLowerCase());
+            workers[lane.ordinal()].setDaemon(true);
+            workers[lane.ordinal()].start();
+        }
+    }
+
+    // Perishable parcels go first; otherwise short pickups take the express lane.
+    static Lane classify(Customer customer) {
+        List<Parcel> parcels = customer.getParcels();
+        for (Parcel parcel : parcels) {
+            if (parcel.getParcelType() == ParcelType.PERISHABLE) {
+                return Lane.PRIORITY;
+            }
+        }
+        return parcels.size() <= EXPRESS_MAX_PARCELS ? Lane.EXPRESS : Lane.STANDARD;
+    }
+
+    public void submit(Customer customer) {
+        if (closed) {
+            throw new IllegalStateException("Scheduler is closed");
+        }
+        outstanding.incrementAndGet();
+        lanes.get(classifier.apply(customer).ordinal()).add(customer);
+        lock.lock();
+        try {
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until every submitted customer has been served.
+    public void awaitDrained() throws InterruptedException {
+        lock.lock();
+        try {
+            while (outstanding.get() > 0) {
+                drained.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public LaneStats getStats(Lane lane) {
+        return stats[lane.ordinal()];
+    }
+
+    public LaneStats getOverallStats() {
+        LaneStats overall = new LaneStats();
+        for (LaneStats lane : stats) {
+            overall.addAll(lane);
+        }
+        return overall;
+    }
+
+    // Serves everything already submitted, then stops the workers. The
+    // customers have already left the queue, so an interrupt does not cut
+    // this short; it is kept for the caller to see afterwards.
+    @Override
+    public void close() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                awaitDrained();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        closed = true;
+        lock.lock();
+        try {
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWorker(Lane own) {
+        Lane[] from = new Lane[1];
+        while (true) {
+            Customer customer = next(own, from);
+            if (customer == null) {
+                if (closed || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                idle();
+                continue;
+            }
+            stats[from[0].ordinal()].record(Math.max(0,
+                Duration.between(customer.getJoinTime(), LocalDateTime.now()).toNanos()));
+            // Whatever the service throws, Errors included, the customer is
+            // counted off and the worker carries on, so close() and
+            // awaitDrained() always return.
+            try {
+                service.accept(customer);
+            } catch (Throwable e) {
+                Log.getInstance().addEntry("Error serving customer " + customer.getId() + ": " + e);
+            } finally {
+                if (outstanding.decrementAndGet() == 0) {
+                    lock.lock();
+                    try {
+                        drained.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        }
+    }
+
+    // Takes from the worker's own lane, or else steals the oldest customer
+    // from whichever other lane is longest.
+    private Customer next(Lane own, Lane[] from) {
+        Customer customer = lanes.get(own.ordinal()).poll();
+        if (customer != null) {
+            from[0] = own;
+            return customer;
+        }
+        while (true) {
+            Lane victim = null;
+            int longest = 0;
+            for (Lane lane : Lane.values()) {
+                int length = lanes.get(lane.ordinal()).length.get();
+                if (lane != own && length > longest) {
+                    victim = lane;
+                    longest = length;
+                }
+            }
+            if (victim == null) {
+                return null;
+            }
+            customer = lanes.get(victim.ordinal()).poll();
+            if (customer != null) {
+                from[0] = victim;
+                return customer;
+            }
+        }
+    }
+
+    private void idle() {
+        lock.lock();
+        try {
+            if (!closed && allLanesEmpty()) {
+                workAvailable.await(IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean allLanesEmpty() {
+        for (LaneQueue lane : lanes) {
+            if (!lane.customers.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
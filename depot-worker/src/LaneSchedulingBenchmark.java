@@ -0,0 +1,90 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+// Compares customer waits under the lane scheduler with a plain FIFO line
+// served by the same three workers. Customers arrive at a steady rate with a
+// skewed parcel count (most collect one or two, a few collect dozens), and
+// handing over each parcel takes a fixed time at the counter.
+// Usage: java LaneSchedulingBenchmark [customers] [microsPerParcel] [load]
+class LaneSchedulingBenchmark {
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws Exception {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long microsPerParcel = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        double load = args.length > 2 ? Double.parseDouble(args[2]) : 0.8;
+
+        List<List<Parcel>> pickups = createPickups(customers);
+        long totalParcels = 0;
+        for (List<Parcel> parcels : pickups) {
+            totalParcels += parcels.size();
+        }
+        int workers = LaneScheduler.Lane.values().length;
+        long interArrivalNanos = (long) (totalParcels * microsPerParcel * 1000
+            / (double) customers / workers / load);
+
+        System.out.printf("%d customers, %d parcels, %d us/parcel, %d workers, load %.0f%%%n",
+            customers, totalParcels, microsPerParcel, workers, load * 100);
+        System.out.printf("%-10s %-10s %10s %12s %12s %12s%n",
+            "Scheduler", "Lane", "customers", "mean ms", "p99 ms", "max ms");
+        run("fifo", pickups, microsPerParcel, interArrivalNanos, customer -> LaneScheduler.Lane.STANDARD);
+        run("lanes", pickups, microsPerParcel, interArrivalNanos, LaneScheduler::classify);
+    }
+
+    private static void run(String name, List<List<Parcel>> pickups, long microsPerParcel,
+            long interArrivalNanos, Function<Customer, LaneScheduler.Lane> classifier)
+            throws Exception {
+        LaneScheduler scheduler = new LaneScheduler(customer ->
+            LockSupport.parkNanos(customer.getParcels().size() * microsPerParcel * 1000), classifier);
+        long next = System.nanoTime();
+        for (int i = 0; i < pickups.size(); i++) {
+            while (System.nanoTime() < next) {
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+            next += interArrivalNanos;
+            Customer customer = new Customer(String.format("C%03d", i % 1000), "Customer " + i);
+            for (Parcel parcel : pickups.get(i)) {
+                customer.addParcel(parcel);
+            }
+            scheduler.submit(customer);
+        }
+        scheduler.close();
+
+        for (LaneScheduler.Lane lane : LaneScheduler.Lane.values()) {
+            LaneScheduler.LaneStats stats = scheduler.getStats(lane);
+            if (stats.getCount() > 0) {
+                print(name, lane.name().toLowerCase(), stats);
+            }
+        }
+        print(name, "all", scheduler.getOverallStats());
+    }
+
+    private static void print(String scheduler, String lane, LaneScheduler.LaneStats stats) {
+        System.out.printf("%-10s %-10s %10d %12.2f %12.2f %12.2f%n", scheduler, lane, stats.getCount(),
+            stats.getMeanMillis(), stats.getPercentileMillis(0.99), stats.getPercentileMillis(1.0));
+    }
+
+    // 70% collect 1-2 parcels, 20% collect 5-10 and 10% collect 30-40; about
+    // one pickup in seven includes something perishable.
+    private static List<List<Parcel>> createPickups(int customers) throws ValidationException {
+        Random random = new Random(SEED);
+        List<List<Parcel>> pickups = new ArrayList<>(customers);
+        int n = 0;
+        for (int i = 0; i < customers; i++) {
+            int roll = random.nextInt(10);
+            int count = roll < 7 ? 1 + random.nextInt(2) : roll < 9 ? 5 + random.nextInt(6) : 30 + random.nextInt(11);
+            boolean perishable = random.nextInt(7) == 0;
+            List<Parcel> parcels = new ArrayList<>(count);
+            for (int j = 0; j < count; j++, n++) {
+                ParcelType type = perishable && j == 0 ? ParcelType.PERISHABLE
+                    : n % 2 == 0 ? ParcelType.STANDARD : ParcelType.FRAGILE;
+                parcels.add(new Parcel(String.format("P%03d", n % 1000), 1 + n % 90, type.getDisplayName()));
+            }
+            pickups.add(parcels);
+        }
+        return pickups;
+    }
+}
@@ -1,31 +1,300 @@
-import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
+// Asynchronous logger. Producers claim a slot in a bounded lock-free ring
+// buffer and return; a single background thread drains the ring in batches
+// and appends to data/logs/depot.log, rolling the file by size or by age.
 class Log {
-    private static Log instance;
-    private StringBuffer logBuffer;
+    enum OverflowPolicy {
+        BLOCK,  // wait for the flusher to free a slot
+        DROP    // discard the entry and count it
+    }
+
+    private static final Path DEFAULT_DIRECTORY = Paths.get("data", "logs");
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final long DEFAULT_MAX_FILE_BYTES = 10L * 1024 * 1024;
+    private static final long DEFAULT_ROLL_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_ROLLED_FILES = 20;
+    private static final int BATCH_SIZE = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final String ACTIVE_FILE = "depot.log";
+    private static final DateTimeFormatter ROLL_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
 
-    private Log() {
-        logBuffer = new StringBuffer();
+    private static final class Holder {
+        static final Log INSTANCE = new Log(DEFAULT_DIRECTORY, DEFAULT_CAPACITY,
+            DEFAULT_MAX_FILE_BYTES, DEFAULT_ROLL_INTERVAL_MILLIS, OverflowPolicy.BLOCK);
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::close, "log-shutdown"));
+        }
     }
 
+    private final Path directory;
+    private final long maxFileBytes;
+    private final long rollIntervalMillis;
+    private volatile OverflowPolicy overflowPolicy;
+
+    // Ring buffer (Vyukov-style bounded queue): a slot may be written when its
+    // sequence equals the producer position and read when it is position + 1.
+    private final String[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+    private volatile long flushedUpTo;
+
+    private final LongAdder dropped = new LongAdder();
+    private final List<Path> rolledThisSession = new CopyOnWriteArrayList<>();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    // Owned by the flusher thread.
+    private BufferedWriter out;
+    private long currentFileBytes;
+    private long currentFileOpenedAt;
+
     public static Log getInstance() {
-        if (instance == null) {
-            instance = new Log();
+        return Holder.INSTANCE;
+    }
+
+    Log(Path directory, int capacity, long maxFileBytes, long rollIntervalMillis, OverflowPolicy overflowPolicy) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.rollIntervalMillis = rollIntervalMillis;
+        this.overflowPolicy = overflowPolicy;
+        this.slots = new String[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
         }
-        return instance;
+        this.flusher = new Thread(this::runFlusher, "log-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
     }
 
     public void addEntry(String entry) {
-        logBuffer.append(entry).append("\n");
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+        while (!offer(entry)) {
+            if (overflowPolicy == OverflowPolicy.DROP || closed) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.unpark(flusher);
+            LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+        }
     }
 
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    // Blocks until every entry added before this call has been written out.
+    public void flush() {
+        long target = tail.get();
+        while (flushedUpTo < target && flusher.isAlive()) {
+            LockSupport.unpark(flusher);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Writes everything logged in this session (rolled files plus the active
+    // file) to the given file.
     public void saveToFile(String filename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            writer.write(logBuffer.toString());
+        flush();
+        List<Path> sources = new ArrayList<>(rolledThisSession);
+        sources.add(directory.resolve(ACTIVE_FILE));
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8)) {
+            for (Path source : sources) {
+                if (Files.exists(source)) {
+                    try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+                        reader.transferTo(writer);
+                    }
+                }
+            }
         } catch (IOException e) {
             System.err.println("Error writing to log file: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private boolean offer(String entry) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = entry;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private String poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        String entry = slots[index];
+        slots[index] = null;
+        sequences.set(index, head + slots.length);
+        head++;
+        return entry;
+    }
+
+    private void runFlusher() {
+        try {
+            openActiveFile(true);
+        } catch (IOException e) {
+            System.err.println("Error opening log file: " + e.getMessage());
+        }
+        while (true) {
+            boolean wasClosed = closed;
+            int written = drainBatch();
+            flushedUpTo = head;
+            if (written == 0) {
+                if (wasClosed) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing log file: " + e.getMessage());
+        }
+    }
+
+    private int drainBatch() {
+        int written = 0;
+        String entry;
+        while (written < BATCH_SIZE && (entry = poll()) != null) {
+            write(entry);
+            written++;
+        }
+        if (written > 0 && out != null) {
+            try {
+                out.flush();
+                rollIfNeeded();
+            } catch (IOException e) {
+                System.err.println("Error writing to log file: " + e.getMessage());
+            }
+        }
+        return written;
+    }
+
+    private void write(String entry) {
+        if (out == null) {
+            dropped.increment();
+            return;
+        }
+        try {
+            out.write(entry);
+            out.write('\n');
+            currentFileBytes += entry.length() + 1;
+        } catch (IOException e) {
+            dropped.increment();
+        }
+    }
+
+    private void rollIfNeeded() throws IOException {
+        boolean tooBig = currentFileBytes >= maxFileBytes;
+        boolean tooOld = System.currentTimeMillis() - currentFileOpenedAt >= rollIntervalMillis;
+        if (tooBig || tooOld) {
+            out.close();
+            rolledThisSession.add(rollActiveFile());
+            pruneRolledFiles();
+            openActiveFile(false);
+        }
+    }
+
+    private void openActiveFile(boolean startOfSession) throws IOException {
+        Files.createDirectories(directory);
+        Path active = directory.resolve(ACTIVE_FILE);
+        // A file left by an earlier run belongs to that session; move it aside.
+        if (startOfSession && Files.exists(active)) {
+            rollActiveFile();
+        }
+        out = Files.newBufferedWriter(active, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        currentFileBytes = Files.size(active);
+        currentFileOpenedAt = System.currentTimeMillis();
+    }
+
+    private Path rollActiveFile() throws IOException {
+        String suffix = LocalDateTime.now().format(ROLL_SUFFIX);
+        Path rolled = directory.resolve("depot-" + suffix + ".log");
+        return Files.move(directory.resolve(ACTIVE_FILE), rolled, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void pruneRolledFiles() {
+        List<Path> rolled = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "depot-*.log")) {
+            files.forEach(rolled::add);
+        } catch (IOException e) {
+            System.err.println("Error listing log files: " + e.getMessage());
+            return;
+        }
+        // The timestamp suffix sorts chronologically, so the oldest files come first.
+        Collections.sort(rolled);
+        for (int i = 0; i < rolled.size() - MAX_ROLLED_FILES; i++) {
+            try {
+                Files.deleteIfExists(rolled.get(i));
+                rolledThisSession.remove(rolled.get(i));
+            } catch (IOException e) {
+                System.err.println("Error deleting old log file: " + e.getMessage());
+            }
+        }
+    }
+}
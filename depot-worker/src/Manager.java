@@ -1,43 +1,342 @@
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
-class Manager {
+// Several counters may call into one Manager at once (see DepotServer).
+// Parcel additions only need the shared side of stateLock, since ParcelMap
+// is concurrent; anything that touches the customer queue or swaps the
+// stores takes the exclusive side. A parcel is journaled before the read
+// lock is released, so an exclusive operation that sees it in the map also
+// finds its record ahead of its own in the journal.
+class Manager implements Depot {
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private final AtomicBoolean checkpointScheduled = new AtomicBoolean();
     private QueueOfCustomers customerQueue;
     private ParcelMap parcelMap;
+    private final ParcelAssignments assignments = new ParcelAssignments();
     private Worker worker;
     private Log log;
+    // One report task per core by default; 1 processes customers in turn on
+    // the calling thread.
+    private int reportParallelism = Runtime.getRuntime().availableProcessors();
+    private volatile long enqueueTimeoutMillis;
+    private Journal journal;
+    private boolean replaying;
+    private String snapshotFilename;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final long COMPACT_AFTER_RECORDS = 10_000;
+    private static final int PROGRESS_INTERVAL_LINES = 1000;
+    private static final Metrics METRICS = Metrics.getInstance();
+    // Runs the checkpoints the journal's growth calls for, off the threads
+    // making changes.
+    private static final ExecutorService CHECKPOINTER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Metrics.Histogram PROCESS_NEXT_TIME = METRICS.histogram("manager.processNextCustomer");
+    private static final Metrics.Histogram REPORT_TIME = METRICS.histogram("manager.report");
+    private static final LongAdder REPORT_CUSTOMERS = METRICS.counter("manager.report.customers");
+    static final String DEFAULT_SNAPSHOT_FILE = "depot.snapshot";
+    static final String DEFAULT_JOURNAL_FILE = "depot.journal";
 
     public Manager() {
         customerQueue = new QueueOfCustomers();
         parcelMap = new ParcelMap();
         worker = new Worker();
         log = Log.getInstance();
+        // The most recently created Manager is the one published. The gauges
+        // read the fields without the state lock, so just after a snapshot is
+        // restored they may briefly report the old stores.
+        METRICS.gauge("queue.depth", () -> customerQueue.size());
+        METRICS.gauge("queue.peakDepth", () -> customerQueue.getPeakDepth());
+        METRICS.gauge("queue.producerBlockedMillis", () -> customerQueue.getProducerBlockedNanos() / 1_000_000);
+        METRICS.gauge("parcels.count", () -> parcelMap.size());
     }
- public void addCustomerToQueue(Customer customer) throws ValidationException {
-        customerQueue.addCustomer(customer);
+    public void addCustomerToQueue(Customer customer) throws ValidationException {
+        enqueue(customer);
         log.addEntry("Added new customer: " + customer.getName());
     }
 
-    public Customer removeNextCustomer() {
-        Customer customer = customerQueue.removeCustomer();
-        if (customer != null) {
+    // How long an enqueue waits for room when the queue is full before it is
+    // refused. Zero (the default) refuses at once, which suits the single
+    // threaded CLI and UI where nobody else can free a place.
+    public void setEnqueueTimeoutMillis(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+        this.enqueueTimeoutMillis = millis;
+    }
+
+    // Adds and journals the customer under the exclusive lock. While the
+    // queue is full the wait happens outside that lock, so the counters that
+    // would free a place are not shut out, and the add is retried.
+    private void enqueue(Customer customer) throws ValidationException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(enqueueTimeoutMillis);
+        while (true) {
+            QueueOfCustomers queue;
+            long remaining;
+            stateLock.writeLock().lock();
+            try {
+                queue = customerQueue;
+                remaining = deadline - System.nanoTime();
+                // Nested calls (journal replay) already hold the lock and cannot wait.
+                if (remaining <= 0 || queue.size() < queue.getCapacity()
+                        || stateLock.getWriteHoldCount() > 1) {
+                    queue.checkCanAdd(customer);
+                    journalCustomer(customer);
+                    queue.addCustomer(customer);
+                    checkpointIfDue();
+                    return;
+                }
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            try {
+                queue.awaitCapacity(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ValidationException("Interrupted while waiting for room in the queue");
+            }
+        }
+    }
+
+    public Customer removeNextCustomer() throws ValidationException {
+        stateLock.writeLock().lock();
+        try {
+            if (customerQueue.isEmpty()) {
+                return null;
+            }
+            journal(Journal.RecordType.REMOVE_NEXT_CUSTOMER);
+            Customer customer = customerQueue.removeCustomer();
+            releaseParcels(customer);
             log.addEntry("Removed customer: " + customer.getName());
+            checkpointIfDue();
+            return customer;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    public Customer removeCustomerById(String customerId) throws ValidationException {
+        stateLock.writeLock().lock();
+        try {
+            if (customerQueue.findById(customerId) == null) {
+                return null;
+            }
+            journal(Journal.RecordType.REMOVE_CUSTOMER, customerId);
+            Customer customer = customerQueue.removeById(customerId);
+            releaseParcels(customer);
+            log.addEntry("Customer left the queue: " + customer.getName());
+            checkpointIfDue();
+            return customer;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    // Turns on write-ahead journaling. Restores data/<snapshotFilename> if it
+    // exists, replays data/<journalFilename> on top of it, and from then on
+    // records every state change before it is made: a change whose record
+    // cannot be written is refused.
+    public void enableJournal(String snapshotFilename, String journalFilename) throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            openJournal(snapshotFilename, journalFilename);
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    private void openJournal(String snapshotFilename, String journalFilename) throws IOException {
+        long snapshotLsn = 0;
+        Path snapshotPath = Paths.get("data", snapshotFilename);
+        if (Files.exists(snapshotPath)) {
+            try {
+                DepotSnapshot snapshot = DepotSnapshot.read(snapshotPath);
+                parcelMap = snapshot.getParcelMap();
+                customerQueue = snapshot.getCustomerQueue();
+                assignments.rebuild(parcelMap.getAllParcels());
+                snapshotLsn = snapshot.getJournalLsn();
+            } catch (ValidationException e) {
+                throw new IOException("Cannot restore snapshot: " + e.getMessage(), e);
+            }
+        }
+
+        replaying = true;
+        try {
+            journal = Journal.open(Paths.get("data", journalFilename), snapshotLsn, this::applyJournalRecord);
+        } finally {
+            replaying = false;
+        }
+        // Fees charged from here on use the tariff now in force, whichever
+        // tariff records replay installed (see writeCheckpoint).
+        journal.append(Journal.RecordType.SET_TARIFF, TariffEngine.current().toFields());
+        this.snapshotFilename = snapshotFilename;
+        log.addEntry("Recovered depot state: " + parcelMap.size() + " parcels, "
+            + customerQueue.size() + " customers");
+    }
+
+    // Writes a snapshot covering everything journaled so far and drops those
+    // records from the journal. Runs under the exclusive lock: every change
+    // holds the state lock from its journal append until it is applied, so
+    // no record is dropped before its change is in the snapshot. If a
+    // checkpoint is already running this one is skipped.
+    public void checkpoint() {
+        if (journal == null || !checkpointLock.tryLock()) {
+            return;
+        }
+        try {
+            writeCheckpoint();
+        } catch (IOException e) {
+            System.err.println("Error writing checkpoint: " + e.getMessage());
+        } finally {
+            checkpointLock.unlock();
         }
-        return customer;
+    }
+
+    // Called with checkpointLock held; always take it before the state lock.
+    private void writeCheckpoint() throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            long lsn = journal.getLastLsn();
+            new DepotSnapshot(parcelMap, customerQueue, lsn).write(Paths.get("data", snapshotFilename));
+            journal.compact(lsn);
+            // The snapshot does not hold the tariff, so the journal always
+            // starts with the one the records after it were priced with.
+            journal.append(Journal.RecordType.SET_TARIFF, TariffEngine.current().toFields());
+            log.addEntry("Checkpoint written at journal record " + lsn);
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    // Starts a checkpoint on the checkpointer thread once the journal has
+    // grown past COMPACT_AFTER_RECORDS. Called after a change is applied; the
+    // checkpoint waits for the exclusive lock, so it runs after the caller is
+    // done. Shared lock holders (parcel adds) could not take it themselves.
+    private void checkpointIfDue() {
+        Journal current = journal;
+        if (current == null || replaying || current.getRecordsSinceCompaction() < COMPACT_AFTER_RECORDS
+                || !checkpointScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        CHECKPOINTER.execute(() -> {
+            checkpointScheduled.set(false);
+            checkpoint();
+        });
+    }
+
+    public void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Error closing journal: " + e.getMessage());
+        }
+        journal = null;
+    }
+
+    private void journalCustomer(Customer customer) throws ValidationException {
+        journal(Journal.RecordType.ADD_CUSTOMER, customer.getId(), customer.getName(),
+            customer.getJoinTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+    }
+
+    // Called with the state lock held, before the change is applied. If the
+    // record cannot be written the change must not be made: the failure
+    // comes back to the caller, with the IOException as its cause. A record
+    // whose change is then refused anyway is refused again on replay.
+    private void journal(Journal.RecordType type, String... fields) throws ValidationException {
+        if (journal == null || replaying) {
+            return;
+        }
+        try {
+            journal.append(type, fields);
+        } catch (IOException e) {
+            System.err.println("Error writing journal: " + e.getMessage());
+            log.addEntry("Error writing journal: " + e.getMessage());
+            throw new ValidationException("Change not made, journal write failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void applyJournalRecord(Journal.Record record) {
+        String[] fields = record.fields;
+        try {
+            switch (record.type) {
+                case ADD_PARCEL -> addNewParcel(fields[0], Double.parseDouble(fields[1]), fields[2]);
+                case ADD_CUSTOMER -> addCustomerToQueue(new Customer(fields[0], fields[1],
+                    LocalDateTime.parse(fields[2], DateTimeFormatter.ISO_LOCAL_DATE_TIME)));
+                case REMOVE_NEXT_CUSTOMER -> removeNextCustomer();
+                case REMOVE_CUSTOMER -> removeCustomerById(fields[0]);
+                case ASSIGN_PARCEL -> assignParcelToCustomer(fields[0], fields[1]);
+                case REASSIGN_PARCEL -> reassignParcelToCustomer(fields[0], fields[1]);
+                case ASSIGN_PARCELS -> {
+                    List<String> lines = new ArrayList<>(fields.length / 2);
+                    for (int i = 0; i + 1 < fields.length; i += 2) {
+                        lines.add(fields[i] + "," + fields[i + 1]);
+                    }
+                    if (!assignAll(lines).isEmpty()) {
+                        System.err.println("Skipping journal record " + record.lsn + ": assignments no longer apply");
+                    }
+                }
+                case PROCESS_NEXT_CUSTOMER -> processNextCustomer();
+                case PROCESS_ALL_CUSTOMERS -> processAllCustomers(ReportWriter.discarding(), ProgressListener.NONE);
+                case SET_TARIFF -> TariffEngine.install(Tariff.fromFields(fields));
+            }
+        } catch (ValidationException e) {
+            System.err.println("Skipping journal record " + record.lsn + ": " + e.getMessage());
+        }
+    }
+
+    // The live parcel store; loadSnapshot and enableJournal may replace it.
+    ParcelMap getParcelMap() {
+        return parcelMap;
+    }
+
+    // For monitoring: queue depth and blocked-time counters.
+    QueueOfCustomers getCustomerQueue() {
+        return customerQueue;
     }
 
     public Collection<Parcel> getAllParcels() {
         return parcelMap.getAllParcels();
     }
     public void loadCustomerData(String filename) {
+        loadCustomerData(filename, ProgressListener.NONE);
+    }
+
+    public void loadCustomerData(String filename, ProgressListener progress) {
+        loadLines(filename, "customer", this::processCustomerLine, progress);
+    }
+
+    // Shared by the line-by-line loaders. Progress is reported in bytes every
+    // PROGRESS_INTERVAL_LINES lines; a cancelled load stops between lines and
+    // keeps everything loaded so far.
+    private void loadLines(String filename, String kind, Function<String, String> processLine,
+            ProgressListener progress) {
         if (filename == null || filename.trim().isEmpty()) {
             System.err.println("Error: Filename cannot be empty");
             return;
@@ -49,39 +348,89 @@ class Manager {
             return;
         }
 
+        long total = file.length();
+        long start = System.nanoTime();
+        LongAdder linesRead = METRICS.counter("loader." + kind + ".lines");
+        LongAdder lineErrors = METRICS.counter("loader." + kind + ".errors");
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
             int lineNumber = 0;
+            long bytesRead = 0;
+            progress.progress(0, total, "Loading " + filename);
             while ((line = reader.readLine()) != null) {
+                if (progress.isCancelled()) {
+                    System.out.println("Loading " + kind + " data cancelled after " + lineNumber + " lines.");
+                    log.addEntry("Cancelled loading " + filename + " after " + lineNumber + " lines");
+                    return;
+                }
                 lineNumber++;
-                try {
-                    processCustomerLine(line);
-                } catch (ValidationException e) {
-                    System.err.println("Error on line " + lineNumber + ": " + e.getMessage());
+                // Counts characters plus the line break, which is the byte
+                // count for the ASCII data files.
+                bytesRead += line.length() + 1;
+                String error = processLine.apply(line);
+                linesRead.increment();
+                if (error != null) {
+                    lineErrors.increment();
+                    System.err.println("Error on line " + lineNumber + ": " + error);
+                }
+                if (lineNumber % PROGRESS_INTERVAL_LINES == 0) {
+                    progress.progress(Math.min(bytesRead, total), total,
+                        "Loaded " + lineNumber + " lines of " + filename);
                 }
             }
-            System.out.println("Successfully loaded customer data.");
+            progress.progress(total, total, "Loaded " + lineNumber + " lines of " + filename);
+            System.out.println("Successfully loaded " + kind + " data.");
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
+        } finally {
+            METRICS.histogram("loader." + kind + ".file").recordSince(start);
         }
     }
 
-    private void processCustomerLine(String line) throws ValidationException {
-        if (line.trim().isEmpty()) {
-            throw new ValidationException("Empty line found");
+    // Returns an error message for a bad line, or null once the customer is
+    // queued. Input errors are reported as values, not exceptions.
+    @Override
+    public String processCustomerLine(String line) {
+        if (Validation.isBlank(line)) {
+            return "Empty line found";
         }
 
         String[] parts = line.split(",");
         if (parts.length != 2) {
-            throw new ValidationException("Invalid format. Expected: ID,Name");
+            return "Invalid format. Expected: ID,Name";
         }
 
-        Customer customer = new Customer(parts[0].trim(), parts[1].trim());
-        customerQueue.addCustomer(customer);
-        log.addEntry("Loaded customer: " + customer.getName());
+        String id = parts[0].trim();
+        String name = parts[1].trim();
+        ValidationResult result = Validation.checkCustomer(id, name);
+        if (!result.isOk()) {
+            return result.getMessage();
+        }
+        try {
+            Customer customer = new Customer(id, name);
+            enqueue(customer);
+            log.addEntry("Loaded customer: " + customer.getName());
+            return null;
+        } catch (ValidationException e) {
+            return e.getMessage();
+        }
     }
 
     public void loadParcelData(String filename) {
+        loadParcelData(filename, ProgressListener.NONE);
+    }
+
+    public void loadParcelData(String filename, ProgressListener progress) {
+        loadLines(filename, "parcel", this::processParcelLine, progress);
+    }
+
+    // Memory-mapped, multi-threaded loader for large manifests. Reports errors
+    // like loadParcelData but logs one summary entry instead of one per parcel.
+    // With a journal the loaded parcels are not journaled one by one; a
+    // checkpoint written before the load is reported makes them durable. The
+    // load and the checkpoint run under the exclusive lock, so no other change
+    // can be acknowledged in between that depends on parcels not yet durable.
+    public void bulkLoadParcelData(String filename) {
         if (filename == null || filename.trim().isEmpty()) {
             System.err.println("Error: Filename cannot be empty");
             return;
@@ -93,51 +442,113 @@ class Manager {
             return;
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            int lineNumber = 0;
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                try {
-                    processParcelLine(line);
-                } catch (ValidationException | NumberFormatException e) {
-                    System.err.println("Error on line " + lineNumber + ": " + e.getMessage());
-                }
+        ParcelFileIngestor.Result result;
+        long start = System.nanoTime();
+        checkpointLock.lock();
+        stateLock.writeLock().lock();
+        try {
+            ParcelFileIngestor ingestor = new ParcelFileIngestor(parcelMap,
+                Runtime.getRuntime().availableProcessors());
+            result = ingestor.ingest(file.toPath());
+        } catch (IOException e) {
+            stateLock.writeLock().unlock();
+            checkpointLock.unlock();
+            System.err.println("Error reading file: " + e.getMessage());
+            return;
+        }
+        try {
+            METRICS.histogram("loader.bulk.file").recordSince(start);
+            METRICS.counter("loader.bulk.parcels").add(result.loaded);
+            METRICS.counter("loader.bulk.errors").add(result.errors.size());
+            int shown = Math.min(result.errors.size(), MAX_REPORTED_ERRORS);
+            for (int i = 0; i < shown; i++) {
+                System.err.println(result.errors.get(i));
+            }
+            if (result.errors.size() > shown) {
+                System.err.println("... and " + (result.errors.size() - shown) + " more errors");
+            }
+            log.addEntry("Bulk loaded " + result.loaded + " parcels from " + filename);
+            // One checkpoint covers the whole load instead of a record per parcel.
+            if (journal != null && result.loaded > 0) {
+                writeCheckpoint();
             }
             System.out.println("Successfully loaded parcel data.");
         } catch (IOException e) {
-            System.err.println("Error reading file: " + e.getMessage());
+            // The parcels stay loaded, but would not survive a restart.
+            System.err.println("Error saving bulk loaded parcels: " + e.getMessage());
+            log.addEntry("Bulk load of " + filename + " not saved: " + e.getMessage());
+        } finally {
+            stateLock.writeLock().unlock();
+            checkpointLock.unlock();
         }
     }
 
-    private void processParcelLine(String line) throws ValidationException {
-        if (line.trim().isEmpty()) {
-            throw new ValidationException("Empty line found");
+    // Returns an error message for a bad line, or null once the parcel is added.
+    @Override
+    public String processParcelLine(String line) {
+        if (Validation.isBlank(line)) {
+            return "Empty line found";
         }
 
         String[] parts = line.split(",");
         if (parts.length != 3) {
-            throw new ValidationException("Invalid format. Expected: ID,Weight,Type");
+            return "Invalid format. Expected: ID,Weight,Type";
         }
 
+        String id = parts[0].trim();
+        double weight = Validation.parseWeight(parts[1]);
+        String type = parts[2].trim();
+        ValidationResult result = Validation.checkParcel(id, weight, type);
+        if (result == ValidationResult.WEIGHT_FORMAT) {
+            return "Invalid weight format: " + parts[1];
+        }
+        if (!result.isOk()) {
+            return result.getMessage();
+        }
+        stateLock.readLock().lock();
         try {
-            Parcel parcel = new Parcel(
-                parts[0].trim(),
-                Double.parseDouble(parts[1].trim()),
-                parts[2].trim()
-            );
-            parcelMap.addParcel(parcel);
+            Parcel parcel = new Parcel(id, weight, type);
+            if (parcelMap.findParcel(id) != null) {
+                return "Parcel with ID " + id + " already exists";
+            }
+            journal(Journal.RecordType.ADD_PARCEL, parcel.getId(), Double.toString(parcel.getWeight()), parcel.getType());
+            // Another counter may have added the same ID since the check; its
+            // record wins on replay too, and this one is refused there again.
+            if (!parcelMap.tryAddParcel(parcel)) {
+                return "Parcel with ID " + id + " already exists";
+            }
             log.addEntry("Loaded parcel: " + parcel.getId());
-        } catch (NumberFormatException e) {
-            throw new ValidationException("Invalid weight format: " + parts[1]);
+            return null;
+        } catch (ValidationException e) {
+            return e.getMessage();
+        } finally {
+            stateLock.readLock().unlock();
+            checkpointIfDue();
+        }
+    }
+
+    // Timed including the wait for the state lock, which is what a counter
+    // calling in sees.
+    @Override
+    public Customer processNextCustomer() throws ValidationException {
+        long start = System.nanoTime();
+        stateLock.writeLock().lock();
+        try {
+            Customer customer = processHeadOfQueue();
+            checkpointIfDue();
+            return customer;
+        } finally {
+            stateLock.writeLock().unlock();
+            PROCESS_NEXT_TIME.recordSince(start);
         }
     }
 
-    public Customer processNextCustomer() {
+    private Customer processHeadOfQueue() throws ValidationException {
         // Check if there are any customers in the queue
         if (customerQueue.isEmpty()) {
             return null;
         }
+        journal(Journal.RecordType.PROCESS_NEXT_CUSTOMER);
     
         // Get the next customer from the queue
         Customer customer = customerQueue.peekCustomer();
@@ -148,21 +559,22 @@ class Manager {
             return customer;
         }
     
-        // Process all parcels for this customer
+        // Process all parcels for this customer at the current tariff
         for (Parcel parcel : customer.getParcels()) {
-            // Calculate fee based on parcel type and weight
-            double fee = calculateParcelFee(parcel);
-            parcel.setFee(fee);
-            parcel.setProcessed(true);
-            
-            // Add processing details to log
-            Log.getInstance().addEntry(String.format(
-                "Processed parcel %s for customer %s (%s) - Fee: $%.2f",
-                parcel.getId(),
-                customer.getId(),
-                customer.getName(),
-                fee
-            ));
+            try {
+                worker.processParcel(parcel);
+                
+                // Add processing details to log
+                Log.getInstance().addEntry(String.format(
+                    "Processed parcel %s for customer %s (%s) - Fee: $%.2f",
+                    parcel.getId(),
+                    customer.getId(),
+                    customer.getName(),
+                    parcel.getFee()
+                ));
+            } catch (ValidationException e) {
+                log.addEntry("Error processing parcel " + parcel.getId() + ": " + e.getMessage());
+            }
         }
         
         // Remove the customer after processing
@@ -172,85 +584,193 @@ class Manager {
         return customer;
     }
     
-    private double calculateParcelFee(Parcel parcel) {
-        double baseFee = parcel.getWeight() * 2.5; // Base fee of $2.50 per kg
-        
-        // Add additional fee based on parcel type
-        return switch (parcel.getType().toLowerCase()) {
-            case "fragile" -> baseFee * 1.5;    // 50% extra for fragile items
-            case "perishable" -> baseFee * 1.3;  // 30% extra for perishable items
-            default -> baseFee;                  // Standard fee for regular parcels
-        };
+    // Uses data/tariffs.txt when present, otherwise the built-in tariff.
+    public void loadDefaultTariffs() {
+        if (Files.exists(Paths.get("data", TariffEngine.DEFAULT_TARIFF_FILE))) {
+            reloadTariffs(TariffEngine.DEFAULT_TARIFF_FILE);
+        }
     }
-    
+
+    // Swaps in the rules from data/<filename>. Fees already charged keep
+    // their value; only parcels processed afterwards see the new rates. The
+    // rules are journaled like any change, so replaying the customers served
+    // afterwards charges the same fees. With a journal, call this after
+    // enableJournal: replay leaves the journaled tariff in force.
+    public void reloadTariffs(String filename) {
+        try {
+            Tariff tariff = TariffEngine.parse(Files.readAllLines(Paths.get("data", filename)));
+            stateLock.writeLock().lock();
+            try {
+                journal(Journal.RecordType.SET_TARIFF, tariff.toFields());
+                TariffEngine.install(tariff);
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            log.addEntry("Reloaded tariffs from " + filename);
+        } catch (IOException | ValidationException e) {
+            System.err.println("Error loading tariffs: " + e.getMessage());
+            log.addEntry("Error loading tariffs: " + e.getMessage());
+        }
+    }
+
     private Customer findCustomer(String customerId) throws ValidationException {
-        if (customerId == null || customerId.trim().isEmpty()) {
-            throw new ValidationException("Customer ID cannot be empty");
+        ValidationResult result = Validation.checkCustomerId(customerId);
+        if (!result.isOk()) {
+            throw result.toException();
         }
     
-        if (!customerId.matches("C\\d{3}")) {
-            throw new ValidationException("Invalid customer ID format. Must be C followed by 3 digits");
+        stateLock.readLock().lock();
+        try {
+            return customerQueue.findById(customerId); // Return null if not found
+        } finally {
+            stateLock.readLock().unlock();
         }
+    }
     
-        // Create a temporary queue to hold customers
-        QueueOfCustomers tempQueue = new QueueOfCustomers();
-        Customer foundCustomer = null;
-    
-        // Iterate through the original queue
-        while (!customerQueue.isEmpty()) {
-            Customer current = customerQueue.removeCustomer();
-    
-            // Check if this is the customer we are looking for
-            if (current.getId().equals(customerId)) {
-                foundCustomer = current;
+    public void setReportParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.reportParallelism = parallelism;
+    }
+
+    public int getReportParallelism() {
+        return reportParallelism;
+    }
+
+      public void processAndGenerateReport(String reportFilename) {
+        processAndGenerateReport(reportFilename, ProgressListener.NONE);
+    }
+
+    // Reports one step per customer written. Not cancellable: the customers
+    // have already left the queue by the time the first one is processed.
+    public void processAndGenerateReport(String reportFilename, ProgressListener progress) {
+        long start = System.nanoTime();
+        // The extension picks the format: .csv, .jsonl or the text layout.
+        try (ReportWriter report = new ReportWriter(Paths.get("data", reportFilename),
+                ReportFormat.forFilename(reportFilename))) {
+            report.begin(LocalDateTime.now());
+            processAllCustomers(report, progress);
+            report.finish();
+        } catch (IOException | ValidationException e) {
+            System.err.println("Error generating report: " + e.getMessage());
+            log.addEntry("Error generating report: " + e.getMessage());
+        } finally {
+            REPORT_TIME.recordSince(start);
+        }
+    }
+
+    // Serves the whole queue through express, priority and standard lanes
+    // instead of strict arrival order, and logs the wait times per lane. The
+    // end state is the same as processAndGenerateReport's, so it is journaled
+    // the same way. Returns how many customers were served.
+    public int processAllCustomersInLanes() throws ValidationException {
+        stateLock.writeLock().lock();
+        try {
+            journal(Journal.RecordType.PROCESS_ALL_CUSTOMERS);
+            List<Customer> customers = new ArrayList<>(customerQueue.size());
+            customerQueue.drainTo(customers, Integer.MAX_VALUE);
+            LaneScheduler scheduler = new LaneScheduler(this::collectParcels);
+            for (Customer customer : customers) {
+                scheduler.submit(customer);
             }
-    
-            // Add the customer back to the temporary queue
-            tempQueue.addCustomer(current);
+            scheduler.close();
+            checkpointIfDue();
+            for (LaneScheduler.Lane lane : LaneScheduler.Lane.values()) {
+                LaneScheduler.LaneStats stats = scheduler.getStats(lane);
+                log.addEntry(String.format("Lane %s: %d customers, mean wait %.1f ms, p99 wait %.1f ms",
+                    lane, stats.getCount(), stats.getMeanMillis(), stats.getPercentileMillis(0.99)));
+            }
+            return customers.size();
+        } finally {
+            stateLock.writeLock().unlock();
         }
-    
-        // Restore the original queue
-        while (!tempQueue.isEmpty()) {
-            customerQueue.addCustomer(tempQueue.removeCustomer());
+    }
+
+    private void collectParcels(Customer customer) {
+        for (Parcel parcel : customer.getParcels()) {
+            try {
+                worker.processParcel(parcel);
+                parcel.setStatus(ParcelStatus.COLLECTED);
+            } catch (ValidationException e) {
+                log.addEntry("Error processing parcel " + parcel.getId() + ": " + e.getMessage());
+            }
         }
-    
-        return foundCustomer; // Return null if not found
     }
-    
-      public void processAndGenerateReport(String reportFilename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter("data/" + reportFilename))) {
-            writer.println("Parcel Processing Report");
-            writer.println("Generated: " + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            writer.println("----------------------------------------");
-
-            while (!customerQueue.isEmpty()) {
-                Customer customer = customerQueue.removeCustomer();
-                writer.printf("\nProcessing customer: %s (%s)%n", customer.getName(), customer.getId());
-
-                for (Parcel parcel : customer.getParcels()) {
-                    try {
-                        worker.processParcel(parcel);
-                        parcel.setStatus(ParcelStatus.COLLECTED);
-                        writer.printf("Processed parcel %s: Fee=%.2f, Status=%s%n",
-                            parcel.getId(), parcel.getFee(), parcel.getStatus());
-                    } catch (ValidationException e) {
-                        writer.printf("Error processing parcel %s: %s%n", parcel.getId(), e.getMessage());
-                    }
-                }
+
+    private void processAllCustomers(ReportWriter report, ProgressListener progress) throws ValidationException {
+        stateLock.writeLock().lock();
+        try {
+            journal(Journal.RecordType.PROCESS_ALL_CUSTOMERS);
+            List<Customer> customers = new ArrayList<>(customerQueue.size());
+            customerQueue.drainTo(customers, Integer.MAX_VALUE);
+            if (!replaying) {
+                REPORT_CUSTOMERS.add(customers.size());
             }
-            writer.println("\nEnd of Report");
+            new ParallelCustomerProcessor(worker, reportParallelism).process(customers, report, progress);
+            checkpointIfDue();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    public void saveSnapshot(String filename) {
+        stateLock.readLock().lock();
+        try {
+            new DepotSnapshot(parcelMap, customerQueue).write(Paths.get("data", filename));
+            log.addEntry("Saved snapshot to " + filename);
         } catch (IOException e) {
-            log.addEntry("Error generating report: " + e.getMessage());
+            System.err.println("Error writing snapshot: " + e.getMessage());
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    // With a journal the restored state is checkpointed before it is kept;
+    // if that fails the previous state is put back.
+    public void loadSnapshot(String filename) {
+        checkpointLock.lock();
+        stateLock.writeLock().lock();
+        ParcelMap previousParcels = parcelMap;
+        QueueOfCustomers previousQueue = customerQueue;
+        try {
+            DepotSnapshot snapshot = DepotSnapshot.read(Paths.get("data", filename));
+            parcelMap = snapshot.getParcelMap();
+            customerQueue = snapshot.getCustomerQueue();
+            assignments.rebuild(parcelMap.getAllParcels());
+            if (journal != null) {
+                writeCheckpoint();
+            }
+            log.addEntry("Loaded snapshot from " + filename + ": " + parcelMap.size()
+                + " parcels, " + customerQueue.size() + " customers");
+        } catch (IOException | ValidationException e) {
+            if (parcelMap != previousParcels) {
+                parcelMap = previousParcels;
+                customerQueue = previousQueue;
+                assignments.rebuild(parcelMap.getAllParcels());
+            }
+            System.err.println("Error loading snapshot: " + e.getMessage());
+        } finally {
+            stateLock.writeLock().unlock();
+            checkpointLock.unlock();
         }
     }
 
     public void addNewParcel(String id, double weight, String type) {
+        stateLock.readLock().lock();
         try {
             Parcel newParcel = new Parcel(id, weight, type);
+            if (parcelMap.findParcel(id) != null) {
+                throw new ValidationException("Parcel with ID " + id + " already exists");
+            }
+            journal(Journal.RecordType.ADD_PARCEL, id, Double.toString(weight), type);
             parcelMap.addParcel(newParcel);
             log.addEntry("Added new parcel: " + id);
         } catch (ValidationException e) {
             log.addEntry("Error adding parcel: " + e.getMessage());
+        } finally {
+            stateLock.readLock().unlock();
+            checkpointIfDue();
         }
     }
 
@@ -260,10 +780,55 @@ class Manager {
 
     public void assignParcelToCustomer(String customerId, String parcelId) {
         try {
-            validateIds(customerId, parcelId);
-            Customer customer = findCustomer(customerId);
-            Parcel parcel = parcelMap.findParcel(parcelId);
+            Customer customer = assignParcel(customerId, parcelId);
+            System.out.println("Successfully assigned parcel " + parcelId + 
+                             " to customer " + customer.getName());
+        } catch (ValidationException e) {
+            System.err.println("Error assigning parcel: " + e.getMessage());
+        }
+    }
 
+    // Assigns the parcel and returns the customer, or throws if either ID is
+    // unknown, the parcel has already been processed or it already belongs
+    // to a customer (use reassignParcel to move it).
+    @Override
+    public Customer assignParcel(String customerId, String parcelId) throws ValidationException {
+        validateIds(customerId, parcelId);
+        stateLock.writeLock().lock();
+        try {
+            String error = checkAssignment(customerId, parcelId);
+            if (error != null) {
+                throw new ValidationException(error);
+            }
+            journal(Journal.RecordType.ASSIGN_PARCEL, customerId, parcelId);
+            Customer customer = customerQueue.findById(customerId);
+            assign(customer, parcelMap.findParcel(parcelId));
+            log.addEntry("Assigned parcel " + parcelId + " to customer " + customer.getName());
+            checkpointIfDue();
+            return customer;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    public void reassignParcelToCustomer(String customerId, String parcelId) {
+        try {
+            Customer customer = reassignParcel(customerId, parcelId);
+            System.out.println("Successfully reassigned parcel " + parcelId +
+                             " to customer " + customer.getName());
+        } catch (ValidationException e) {
+            System.err.println("Error reassigning parcel: " + e.getMessage());
+        }
+    }
+
+    // Moves the parcel to the customer, taking it from whoever had it. An
+    // unassigned parcel is simply assigned.
+    Customer reassignParcel(String customerId, String parcelId) throws ValidationException {
+        validateIds(customerId, parcelId);
+        stateLock.writeLock().lock();
+        try {
+            Customer customer = customerQueue.findById(customerId);
+            Parcel parcel = parcelMap.findParcel(parcelId);
             if (customer == null) {
                 throw new ValidationException("Customer not found: " + customerId);
             }
@@ -273,28 +838,268 @@ class Manager {
             if (parcel.isProcessed()) {
                 throw new ValidationException("Parcel has already been processed");
             }
+            if (customerId.equals(assignments.ownerOf(parcel))) {
+                throw new ValidationException("Parcel " + parcelId + " is already assigned to customer " + customerId);
+            }
 
+            journal(Journal.RecordType.REASSIGN_PARCEL, customerId, parcelId);
+            String previous = assignments.reassign(customerId, parcel);
+            Customer previousCustomer = previous == null ? null : customerQueue.findById(previous);
+            if (previousCustomer != null) {
+                previousCustomer.removeParcel(parcel);
+            }
             customer.addParcel(parcel);
-            System.out.println("Successfully assigned parcel " + parcelId + 
-                             " to customer " + customer.getName());
-            log.addEntry("Assigned parcel " + parcelId + " to customer " + customer.getName());
-        } catch (ValidationException e) {
-            System.err.println("Error assigning parcel: " + e.getMessage());
+            log.addEntry("Reassigned parcel " + parcelId + " from customer "
+                + (previous == null ? "NONE" : previous) + " to customer " + customer.getName());
+            checkpointIfDue();
+            return customer;
+        } finally {
+            stateLock.writeLock().unlock();
         }
     }
 
-    private void validateIds(String customerId, String parcelId) throws ValidationException {
-        if (customerId == null || customerId.trim().isEmpty()) {
-            throw new ValidationException("Customer ID cannot be empty");
+    // The customer ID the parcel is assigned to, or null.
+    public String findParcelOwner(String parcelId) {
+        Parcel parcel = parcelMap.findParcel(parcelId);
+        return parcel == null ? null : assignments.ownerOf(parcel);
+    }
+
+    // Every parcel assigned to the customer, including after they have been
+    // served, in the order they were assigned.
+    public List<Parcel> getParcelsForCustomer(String customerId) {
+        stateLock.readLock().lock();
+        try {
+            return new ArrayList<>(assignments.parcelsOf(customerId));
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    // Average weight of the parcels assigned to the customer, or 0 if they
+    // have none. Kept as a running total, so it does not walk the parcels.
+    public double getAverageParcelWeightForCustomer(String customerId) {
+        stateLock.readLock().lock();
+        try {
+            return assignments.averageWeightOf(customerId);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    // Loads data/<filename>, one "CustomerID,ParcelID" pair per line; blank
+    // lines are skipped. The file is checked in one pass before anything
+    // changes: if any line is refused, nothing is assigned and every refused
+    // line is reported. Otherwise all of it is assigned at once and
+    // journaled as a single record.
+    public void loadAssignments(String filename) {
+        if (filename == null || filename.trim().isEmpty()) {
+            System.err.println("Error: Filename cannot be empty");
+            return;
+        }
+
+        File file = new File("data/" + filename);
+        if (!file.exists()) {
+            System.err.println("Error: File not found in data directory");
+            return;
+        }
+
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file.toPath());
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return;
+        }
+        List<String> errors = assignAll(lines);
+        if (errors.isEmpty()) {
+            System.out.println("Successfully loaded assignments.");
+            return;
+        }
+        int shown = Math.min(errors.size(), MAX_REPORTED_ERRORS);
+        for (int i = 0; i < shown; i++) {
+            System.err.println(errors.get(i));
+        }
+        if (errors.size() > shown) {
+            System.err.println("... and " + (errors.size() - shown) + " more errors");
+        }
+        System.err.println("No assignments were made from " + filename);
+        log.addEntry("Rejected assignments file " + filename + ": " + errors.size() + " errors");
+    }
+
+    // Assigns every pair in lines or, if any is refused, none of them. Pairs
+    // are checked against the current state and against each other, so one
+    // batch cannot give a parcel to two customers. Returns one message per
+    // refused line.
+    private List<String> assignAll(List<String> lines) {
+        List<String> errors = new ArrayList<>();
+        stateLock.writeLock().lock();
+        try {
+            List<Customer> customers = new ArrayList<>(lines.size());
+            List<Parcel> parcels = new ArrayList<>(lines.size());
+            Map<String, Integer> linesByParcel = new HashMap<>();
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (Validation.isBlank(line)) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                String error;
+                if (parts.length != 2) {
+                    error = "Invalid format. Expected: CustomerID,ParcelID";
+                } else {
+                    String customerId = parts[0].trim();
+                    String parcelId = parts[1].trim();
+                    error = checkAssignment(customerId, parcelId);
+                    // Only accepted lines claim the parcel, so a refused
+                    // line is never named as the earlier assignment.
+                    if (error == null) {
+                        Integer earlier = linesByParcel.putIfAbsent(parcelId, i + 1);
+                        if (earlier != null) {
+                            error = "Parcel " + parcelId + " is already assigned on line " + earlier;
+                        }
+                    }
+                    if (error == null) {
+                        customers.add(customerQueue.findById(customerId));
+                        parcels.add(parcelMap.findParcel(parcelId));
+                    }
+                }
+                if (error != null) {
+                    errors.add("Error on line " + (i + 1) + ": " + error);
+                }
+            }
+            if (!errors.isEmpty() || parcels.isEmpty()) {
+                return errors;
+            }
+
+            String[] fields = new String[parcels.size() * 2];
+            for (int i = 0; i < parcels.size(); i++) {
+                fields[2 * i] = customers.get(i).getId();
+                fields[2 * i + 1] = parcels.get(i).getId();
+            }
+            try {
+                journal(Journal.RecordType.ASSIGN_PARCELS, fields);
+            } catch (ValidationException e) {
+                errors.add(e.getMessage());
+                return errors;
+            }
+            for (int i = 0; i < parcels.size(); i++) {
+                assign(customers.get(i), parcels.get(i));
+            }
+            log.addEntry("Assigned " + parcels.size() + " parcels in one batch");
+            checkpointIfDue();
+            return errors;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    // Returns why the parcel cannot be assigned to the customer, or null if
+    // it can. Called with the write lock held.
+    private String checkAssignment(String customerId, String parcelId) {
+        ValidationResult result = Validation.checkCustomerId(customerId);
+        if (result.isOk()) {
+            result = Validation.checkParcelId(parcelId);
+        }
+        if (!result.isOk()) {
+            return result.getMessage();
+        }
+        if (customerQueue.findById(customerId) == null) {
+            return "Customer not found: " + customerId;
+        }
+        Parcel parcel = parcelMap.findParcel(parcelId);
+        if (parcel == null) {
+            return "Parcel not found: " + parcelId;
+        }
+        if (parcel.isProcessed()) {
+            return "Parcel has already been processed";
+        }
+        String owner = assignments.ownerOf(parcel);
+        if (owner != null) {
+            return "Parcel " + parcelId + " is already assigned to customer " + owner;
+        }
+        return null;
+    }
+
+    // Called with the write lock held, once checkAssignment has passed.
+    private void assign(Customer customer, Parcel parcel) {
+        if (assignments.tryAssign(customer.getId(), parcel)) {
+            customer.addParcel(parcel);
+        }
+    }
+
+    // A customer who leaves without being served gives their parcels back.
+    // Parcels held by another Manager (see DepotShards) are released there.
+    private void releaseParcels(Customer customer) {
+        for (Parcel parcel : customer.getParcels()) {
+            if (parcelMap.findParcel(parcel.getId()) == parcel) {
+                releaseParcel(customer.getId(), parcel);
+            }
+        }
+    }
+
+    // Assignment across DepotShards partitions, where the parcel and the
+    // customer are held by different Managers. None of it is journaled;
+    // sharded depots run without journals.
+
+    // Step one, on the parcel's Manager: refuses the parcel to anyone else by
+    // making the customer its owner.
+    Parcel reserveParcel(String customerId, String parcelId) throws ValidationException {
+        validateIds(customerId, parcelId);
+        stateLock.writeLock().lock();
+        try {
+            Parcel parcel = parcelMap.findParcel(parcelId);
+            if (parcel == null) {
+                throw new ValidationException("Parcel not found: " + parcelId);
+            }
+            if (parcel.isProcessed()) {
+                throw new ValidationException("Parcel has already been processed");
+            }
+            if (!assignments.tryAssign(customerId, parcel)) {
+                throw new ValidationException("Parcel " + parcelId + " is already assigned to customer "
+                    + assignments.ownerOf(parcel));
+            }
+            return parcel;
+        } finally {
+            stateLock.writeLock().unlock();
         }
-        if (parcelId == null || parcelId.trim().isEmpty()) {
-            throw new ValidationException("Parcel ID cannot be empty");
+    }
+
+    // Step two, on the customer's Manager. If it fails, the parcel's Manager
+    // undoes step one with releaseParcel.
+    Customer attachParcel(String customerId, Parcel parcel) throws ValidationException {
+        stateLock.writeLock().lock();
+        try {
+            Customer customer = customerQueue.findById(customerId);
+            if (customer == null) {
+                throw new ValidationException("Customer not found: " + customerId);
+            }
+            customer.addParcel(parcel);
+            log.addEntry("Assigned parcel " + parcel.getId() + " to customer " + customer.getName());
+            return customer;
+        } finally {
+            stateLock.writeLock().unlock();
         }
-        if (!customerId.matches("C\\d{3}")) {
-            throw new ValidationException("Invalid customer ID format. Must be C followed by 3 digits");
+    }
+
+    // Clears the parcel's owner if it is still customerId.
+    void releaseParcel(String customerId, Parcel parcel) {
+        stateLock.writeLock().lock();
+        try {
+            if (customerId.equals(assignments.ownerOf(parcel))) {
+                assignments.release(parcel);
+            }
+        } finally {
+            stateLock.writeLock().unlock();
         }
-        if (!parcelId.matches("P\\d{3}")) {
-            throw new ValidationException("Invalid parcel ID format. Must be P followed by 3 digits");
+    }
+
+    private void validateIds(String customerId, String parcelId) throws ValidationException {
+        ValidationResult result = Validation.checkCustomerId(customerId);
+        if (result.isOk()) {
+            result = Validation.checkParcelId(parcelId);
+        }
+        if (!result.isOk()) {
+            throw result.toException();
         }
     }
 
@@ -309,12 +1114,14 @@ class Manager {
                 System.out.println("3. Assign Parcel to Customer");
                 System.out.println("4. Process Next Customer");
                 System.out.println("5. Save Log");
-                System.out.println("6. Exit");
-                System.out.print("Enter choice (1-6): ");
+                System.out.println("6. Reassign Parcel to Customer");
+                System.out.println("7. Load Assignments");
+                System.out.println("8. Exit");
+                System.out.print("Enter choice (1-8): ");
 
                 String input = scanner.nextLine().trim();
-                if (!input.matches("[1-6]")) {
-                    System.err.println("Invalid choice. Please enter a number between 1 and 6.");
+                if (!input.matches("[1-8]")) {
+                    System.err.println("Invalid choice. Please enter a number between 1 and 8.");
                     continue;
                 }
 
@@ -337,7 +1144,13 @@ class Manager {
                         String parcelId = scanner.nextLine().trim();
                         assignParcelToCustomer(customerId, parcelId);
                     }
-                    case 4 -> processNextCustomer();
+                    case 4 -> {
+                        try {
+                            processNextCustomer();
+                        } catch (ValidationException e) {
+                            System.err.println("Error processing customer: " + e.getMessage());
+                        }
+                    }
                     case 5 -> {
                         System.out.print("Enter log filename: ");
                         String filename = scanner.nextLine().trim();
@@ -349,7 +1162,20 @@ class Manager {
                         }
                     }
                     case 6 -> {
+                        System.out.print("Enter customer ID (Cxxx): ");
+                        String customerId = scanner.nextLine().trim();
+                        System.out.print("Enter parcel ID (Pxxx): ");
+                        String parcelId = scanner.nextLine().trim();
+                        reassignParcelToCustomer(customerId, parcelId);
+                    }
+                    case 7 -> {
+                        System.out.print("Enter assignments filename: ");
+                        String filename = scanner.nextLine().trim();
+                        loadAssignments(filename);
+                    }
+                    case 8 -> {
                         running = false;
+                        closeJournal();
                         System.out.println("Exiting program...");
                     }
                 }
@@ -365,6 +1191,18 @@ class Manager {
 
     public static void main(String[] args) {
         Manager manager = new Manager();
+        Metrics.getInstance().startReporting();
+        try {
+            ChangeEventLog.start(ChangeEventLog.DEFAULT_FILE);
+        } catch (IOException e) {
+            System.err.println("Event log disabled: " + e.getMessage());
+        }
+        try {
+            manager.enableJournal(DEFAULT_SNAPSHOT_FILE, DEFAULT_JOURNAL_FILE);
+        } catch (IOException e) {
+            System.err.println("Journal disabled: " + e.getMessage());
+        }
+        manager.loadDefaultTariffs();
         manager.run();
     }
 }
\ No newline at end of file
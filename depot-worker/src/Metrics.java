@@ -0,0 +1,281 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+// Process-wide metrics: counters, latency histograms and gauges, looked up by
+// name and created on first use. Recording is a LongAdder increment (plus a
+// max update for histograms), so it never takes a lock and stays cheap when
+// many threads record at once. Hot paths look their metrics up once and keep
+// the reference.
+//
+// Everything registered is published as attributes of one JMX MBean,
+// depot:type=Metrics, and can be written out periodically to
+// data/metrics.txt (see startReporting).
+class Metrics {
+    static final String OBJECT_NAME = "depot:type=Metrics";
+    static final Path DEFAULT_SNAPSHOT_FILE = Paths.get("data", "metrics.txt");
+    static final long DEFAULT_SNAPSHOT_PERIOD_SECONDS = 10;
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+
+    // Latencies in nanoseconds, bucketed by power of two: bucket b holds
+    // values in [2^(b-1), 2^b), bucket 0 holds zero. Percentiles come back
+    // as the upper edge of their bucket, so they overstate by at most 2x,
+    // and are capped at the largest value seen.
+    static final class Histogram {
+        private static final int BUCKETS = 64;
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int b = 0; b < BUCKETS; b++) {
+                buckets[b] = new LongAdder();
+            }
+        }
+
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets[Long.SIZE - Long.numberOfLeadingZeros(value)].increment();
+            count.increment();
+            totalNanos.add(value);
+            maxNanos.accumulate(value);
+        }
+
+        // Records the time since startNanos, a System.nanoTime() reading.
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMeanMicros() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e3 / n;
+        }
+
+        public double getMaxMicros() {
+            return maxNanos.get() / 1e3;
+        }
+
+        public double getPercentileMicros(double p) {
+            long[] counts = new long[BUCKETS];
+            long n = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[b] = buckets[b].sum();
+                n += counts[b];
+            }
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(p * n));
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += counts[b];
+                if (seen >= rank) {
+                    long upper = (1L << b) - 1;
+                    return Math.min(upper, maxNanos.get()) / 1e3;
+                }
+            }
+            return maxNanos.get() / 1e3;
+        }
+    }
+
+    private final ConcurrentNavigableMap<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private ScheduledExecutorService snapshotter;
+
+    private Metrics() {
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    // Registers (or replaces) a value that is read when metrics are published.
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // Current values by attribute name, in name order. A histogram named h
+    // contributes h.count, h.meanMicros, h.p50Micros, h.p99Micros and
+    // h.maxMicros.
+    public Map<String, Number> snapshot() {
+        Map<String, Number> values = new LinkedHashMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        histograms.forEach((name, histogram) -> {
+            values.put(name + ".count", histogram.getCount());
+            values.put(name + ".meanMicros", histogram.getMeanMicros());
+            values.put(name + ".p50Micros", histogram.getPercentileMicros(0.50));
+            values.put(name + ".p99Micros", histogram.getPercentileMicros(0.99));
+            values.put(name + ".maxMicros", histogram.getMaxMicros());
+        });
+        return values;
+    }
+
+    // Registers the MBean, starts writing data/metrics.txt every
+    // DEFAULT_SNAPSHOT_PERIOD_SECONDS and starts counting change events. Safe to call more than once.
+    public synchronized void startReporting() {
+        registerMBean();
+        if (snapshotter == null) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotter.scheduleAtFixedRate(() -> writeSnapshot(DEFAULT_SNAPSHOT_FILE),
+                DEFAULT_SNAPSHOT_PERIOD_SECONDS, DEFAULT_SNAPSHOT_PERIOD_SECONDS, TimeUnit.SECONDS);
+            ChangeEventBus.getInstance().subscribe("metrics", new EventCounter());
+        }
+    }
+
+    // Counts change events by type (events.<TYPE>) and times how long they
+    // wait on the bus before delivery (events.delivery), off the threads
+    // that publish them.
+    private final class EventCounter implements ChangeEventBus.Subscriber {
+        private final LongAdder[] byType = new LongAdder[ChangeEvent.Type.values().length];
+        private final Histogram delivery = histogram("events.delivery");
+
+        EventCounter() {
+            for (ChangeEvent.Type type : ChangeEvent.Type.values()) {
+                byType[type.ordinal()] = counter("events." + type);
+            }
+        }
+
+        @Override
+        public void onEvent(ChangeEvent event, boolean endOfBatch) {
+            byType[event.getType().ordinal()].increment();
+            delivery.recordSince(event.getNanos());
+        }
+    }
+
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new MetricsMBean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already published by an earlier call.
+        } catch (JMException e) {
+            System.err.println("Error registering metrics MBean: " + e.getMessage());
+        }
+    }
+
+    // Writes to a temporary file and renames it, so readers never see a
+    // half-written snapshot.
+    public void writeSnapshot(Path file) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write("# Depot metrics " + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                writer.newLine();
+                for (Map.Entry<String, Number> entry : snapshot().entrySet()) {
+                    writer.write(entry.getKey() + " " + format(entry.getValue()));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Log.getInstance().addEntry("Error writing metrics snapshot: " + e.getMessage());
+        }
+    }
+
+    private static String format(Number value) {
+        return value instanceof Double ? String.format("%.1f", value.doubleValue()) : value.toString();
+    }
+
+    // Attributes are whatever snapshot() returns at the time, so metrics
+    // created after registration show up without re-registering.
+    private final class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Number value = snapshot().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Number> values = snapshot();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Number value = values.get(attribute);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName), "No operations: " + actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            Map<String, Number> values = snapshot();
+            MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+            int i = 0;
+            for (Map.Entry<String, Number> entry : values.entrySet()) {
+                attributes[i++] = new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                    entry.getKey(), true, false, false);
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Depot operational metrics",
+                attributes, null, null, null);
+        }
+    }
+}
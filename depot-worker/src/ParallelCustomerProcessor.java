@@ -0,0 +1,71 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Processes a batch of customers for the shift report. Each customer is a
+// single task, so all of one customer's parcels are handled together on one
+// thread; customers are handed to the ReportWriter in the order they were
+// queued.
+class ParallelCustomerProcessor {
+    private final Worker worker;
+    private final int parallelism;
+
+    public ParallelCustomerProcessor(Worker worker, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.worker = worker;
+        this.parallelism = parallelism;
+    }
+
+    // Progress counts customers whose section has been written.
+    public void process(List<Customer> customers, ReportWriter report, ProgressListener progress) {
+        int total = customers.size();
+        if (parallelism == 1) {
+            for (int i = 0; i < total; i++) {
+                report.customer(customers.get(i), processCustomer(customers.get(i)));
+                reportWritten(progress, customers.get(i), i + 1, total);
+            }
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<String[]>> results = new ArrayList<>(total);
+            for (Customer customer : customers) {
+                results.add(pool.submit(() -> processCustomer(customer)));
+            }
+            // join() in submission order keeps the report in queue order while
+            // later customers are still being processed.
+            for (int i = 0; i < total; i++) {
+                report.customer(customers.get(i), results.get(i).join());
+                reportWritten(progress, customers.get(i), i + 1, total);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void reportWritten(ProgressListener progress, Customer customer, int done, int total) {
+        progress.progress(done, total, "Processed customer " + customer.getId());
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // Returns null when every parcel was processed, otherwise the error for
+    // each parcel that was not (see ReportWriter.customer). The customer's
+    // parcels are priced as one batch.
+    private String[] processCustomer(Customer customer) {
+        List<Parcel> parcels = customer.getParcels();
+        String[] errors = worker.processParcels(parcels);
+        for (int i = 0; i < parcels.size(); i++) {
+            if (errors == null || errors[i] == null) {
+                parcels.get(i).setStatus(ParcelStatus.COLLECTED);
+            }
+        }
+        return errors;
+    }
+}
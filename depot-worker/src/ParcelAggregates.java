@@ -0,0 +1,207 @@
+import java.util.Map;
+import java.util.TreeMap;
+
+// Running totals over a ParcelMap, kept per (status, type) cell and updated
+// by ParcelMap's change hooks as parcels are added and their fee, status or
+// processed flag changes. Counts and sums change in O(1). Minimums and
+// maximums come from a sorted count of the distinct values in each cell, so
+// keeping and reading them costs O(log d), d being the number of distinct
+// weights or fees in the cell, rather than O(1). A query merges at most
+// one row or column of cells, so it never depends on the number of parcels.
+//
+// Per-customer totals (e.g. average weight) live in ParcelAssignments.
+//
+// Each cell has its own monitor. A status change leaves one cell and enters
+// another in two steps, so a query that runs in between may miss the parcel
+// for that moment.
+class ParcelAggregates {
+    private static final ParcelStatus[] STATUSES = ParcelStatus.values();
+    private static final ParcelType[] TYPES = ParcelType.values();
+
+    // Totals for a group of parcels. min and max are NaN for an empty group.
+    static final class Totals {
+        private long count;
+        private long processed;
+        private double weight;
+        private double fees;
+        private double minWeight = Double.NaN;
+        private double maxWeight = Double.NaN;
+        private double minFee = Double.NaN;
+        private double maxFee = Double.NaN;
+
+        public long getCount() { return count; }
+        public long getProcessedCount() { return processed; }
+        public double getTotalWeight() { return weight; }
+        public double getTotalFees() { return fees; }
+        public double getAverageWeight() { return count == 0 ? 0 : weight / count; }
+        public double getAverageFee() { return count == 0 ? 0 : fees / count; }
+        public double getMinWeight() { return minWeight; }
+        public double getMaxWeight() { return maxWeight; }
+        public double getMinFee() { return minFee; }
+        public double getMaxFee() { return maxFee; }
+
+        private void merge(Cell cell) {
+            synchronized (cell) {
+                if (cell.count == 0) {
+                    return;
+                }
+                count += cell.count;
+                processed += cell.processed;
+                weight += cell.weight;
+                fees += cell.fees;
+                minWeight = min(minWeight, cell.weights.firstKey());
+                maxWeight = max(maxWeight, cell.weights.lastKey());
+                minFee = min(minFee, cell.feeValues.firstKey());
+                maxFee = max(maxFee, cell.feeValues.lastKey());
+            }
+        }
+
+        private static double min(double current, double value) {
+            return Double.isNaN(current) ? value : Math.min(current, value);
+        }
+
+        private static double max(double current, double value) {
+            return Double.isNaN(current) ? value : Math.max(current, value);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Totals[count=%d, processed=%d, weight=%.2f, fees=%.2f]",
+                count, processed, weight, fees);
+        }
+    }
+
+    // Parcels with one status and one type. Values are counted in sorted
+    // maps so the extremes survive removals.
+    private static final class Cell {
+        long count;
+        long processed;
+        double weight;
+        double fees;
+        final TreeMap<Double, Integer> weights = new TreeMap<>();
+        final TreeMap<Double, Integer> feeValues = new TreeMap<>();
+
+        synchronized void add(double parcelWeight, double fee, boolean isProcessed) {
+            count++;
+            processed += isProcessed ? 1 : 0;
+            weight += parcelWeight;
+            fees += fee;
+            weights.merge(parcelWeight, 1, Integer::sum);
+            feeValues.merge(fee, 1, Integer::sum);
+        }
+
+        synchronized void remove(double parcelWeight, double fee, boolean isProcessed) {
+            count--;
+            processed -= isProcessed ? 1 : 0;
+            weight -= parcelWeight;
+            fees -= fee;
+            decrement(weights, parcelWeight);
+            decrement(feeValues, fee);
+            if (count == 0) {
+                // Start the sums from exact zero again rather than carry
+                // rounding left over from the subtractions.
+                weight = 0;
+                fees = 0;
+            }
+        }
+
+        synchronized void changeFee(double previous, double fee) {
+            fees += fee - previous;
+            decrement(feeValues, previous);
+            feeValues.merge(fee, 1, Integer::sum);
+        }
+
+        synchronized void changeProcessed(boolean isProcessed) {
+            processed += isProcessed ? 1 : -1;
+        }
+
+        synchronized void reset() {
+            count = 0;
+            processed = 0;
+            weight = 0;
+            fees = 0;
+            weights.clear();
+            feeValues.clear();
+        }
+
+        private static void decrement(Map<Double, Integer> counts, double value) {
+            counts.computeIfPresent(value, (key, n) -> n == 1 ? null : n - 1);
+        }
+    }
+
+    private final Cell[][] cells = new Cell[STATUSES.length][TYPES.length];
+
+    ParcelAggregates() {
+        for (int status = 0; status < STATUSES.length; status++) {
+            for (int type = 0; type < TYPES.length; type++) {
+                cells[status][type] = new Cell();
+            }
+        }
+    }
+
+    // The hooks are called with the parcel's monitor held, so updates for
+    // one parcel never interleave.
+    void add(Parcel parcel) {
+        cell(parcel.getStatus(), parcel).add(parcel.getWeight(), parcel.getFee(), parcel.isProcessed());
+    }
+
+    void feeChanged(Parcel parcel, double previous) {
+        cell(parcel.getStatus(), parcel).changeFee(previous, parcel.getFee());
+    }
+
+    void statusChanged(Parcel parcel, ParcelStatus previous) {
+        if (previous == parcel.getStatus()) {
+            return;
+        }
+        cell(previous, parcel).remove(parcel.getWeight(), parcel.getFee(), parcel.isProcessed());
+        add(parcel);
+    }
+
+    void processedChanged(Parcel parcel) {
+        cell(parcel.getStatus(), parcel).changeProcessed(parcel.isProcessed());
+    }
+
+    void clear() {
+        for (Cell[] row : cells) {
+            for (Cell cell : row) {
+                cell.reset();
+            }
+        }
+    }
+
+    public Totals overall() {
+        Totals totals = new Totals();
+        for (Cell[] row : cells) {
+            for (Cell cell : row) {
+                totals.merge(cell);
+            }
+        }
+        return totals;
+    }
+
+    public Totals forStatus(ParcelStatus status) {
+        Totals totals = new Totals();
+        for (Cell cell : cells[status.ordinal()]) {
+            totals.merge(cell);
+        }
+        return totals;
+    }
+
+    public Totals forType(ParcelType type) {
+        Totals totals = new Totals();
+        for (Cell[] row : cells) {
+            totals.merge(row[type.ordinal()]);
+        }
+        return totals;
+    }
+
+    public Totals forStatusAndType(ParcelStatus status, ParcelType type) {
+        Totals totals = new Totals();
+        totals.merge(cells[status.ordinal()][type.ordinal()]);
+        return totals;
+    }
+
+    private Cell cell(ParcelStatus status, Parcel parcel) {
+        return cells[status.ordinal()][parcel.getParcelType().ordinal()];
+    }
+}
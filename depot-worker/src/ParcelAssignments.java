@@ -0,0 +1,120 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Which customer is collecting which parcel, in both directions. The parcel
+// side is the parcel's own assignedCustomerId; the customer side is a set of
+// parcels per customer ID, with a running weight total beside it. Looking up
+// either way, assigning and moving a parcel to another customer, and a
+// customer's parcel count and average weight are all O(1). A parcel has at most one owner,
+// and owners outlive the queue: a served customer still owns the parcels
+// they collected.
+//
+// Not thread-safe; Manager only changes it under the exclusive side of its
+// state lock.
+class ParcelAssignments {
+    // A customer's parcels; weight is kept in step with parcels, since a
+    // parcel's weight never changes.
+    private static final class Holding {
+        final Set<Parcel> parcels = new LinkedHashSet<>();
+        double weight;
+
+        void add(Parcel parcel) {
+            if (parcels.add(parcel)) {
+                weight += parcel.getWeight();
+            }
+        }
+
+        void remove(Parcel parcel) {
+            if (parcels.remove(parcel)) {
+                weight -= parcel.getWeight();
+            }
+        }
+    }
+
+    private final Map<String, Holding> parcelsByCustomer = new HashMap<>();
+
+    // Starts over from the owners recorded on the parcels, e.g. after a
+    // snapshot has been restored.
+    void rebuild(Collection<Parcel> parcels) {
+        parcelsByCustomer.clear();
+        for (Parcel parcel : parcels) {
+            String owner = parcel.getAssignedCustomerId();
+            if (owner != null) {
+                holdingOf(owner).add(parcel);
+            }
+        }
+    }
+
+    // The owner's customer ID, or null if the parcel is unassigned.
+    String ownerOf(Parcel parcel) {
+        return parcel.getAssignedCustomerId();
+    }
+
+    // The customer's parcels in the order they were assigned; a live view.
+    Collection<Parcel> parcelsOf(String customerId) {
+        Holding holding = parcelsByCustomer.get(customerId);
+        return holding == null ? Collections.emptySet() : Collections.unmodifiableSet(holding.parcels);
+    }
+
+    int countOf(String customerId) {
+        Holding holding = parcelsByCustomer.get(customerId);
+        return holding == null ? 0 : holding.parcels.size();
+    }
+
+    double totalWeightOf(String customerId) {
+        Holding holding = parcelsByCustomer.get(customerId);
+        return holding == null ? 0 : holding.weight;
+    }
+
+    // 0 for a customer with no parcels.
+    double averageWeightOf(String customerId) {
+        Holding holding = parcelsByCustomer.get(customerId);
+        return holding == null ? 0 : holding.weight / holding.parcels.size();
+    }
+
+    // Returns false, changing nothing, if the parcel already has an owner.
+    boolean tryAssign(String customerId, Parcel parcel) {
+        if (ownerOf(parcel) != null) {
+            return false;
+        }
+        holdingOf(customerId).add(parcel);
+        parcel.setAssignedCustomerId(customerId);
+        return true;
+    }
+
+    // Moves the parcel to customerId and returns its previous owner, or null
+    // if it had none.
+    String reassign(String customerId, Parcel parcel) {
+        String previous = release(parcel);
+        holdingOf(customerId).add(parcel);
+        parcel.setAssignedCustomerId(customerId);
+        return previous;
+    }
+
+    // Leaves the parcel without an owner and returns the one it had, or null.
+    String release(Parcel parcel) {
+        String owner = ownerOf(parcel);
+        if (owner == null) {
+            return null;
+        }
+        Holding holding = parcelsByCustomer.get(owner);
+        if (holding != null) {
+            holding.remove(parcel);
+            if (holding.parcels.isEmpty()) {
+                // Dropped rather than kept at zero, which also clears any
+                // rounding left in the weight.
+                parcelsByCustomer.remove(owner);
+            }
+        }
+        parcel.setAssignedCustomerId(null);
+        return owner;
+    }
+
+    private Holding holdingOf(String customerId) {
+        return parcelsByCustomer.computeIfAbsent(customerId, key -> new Holding());
+    }
+}
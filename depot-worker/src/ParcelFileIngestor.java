@@ -0,0 +1,385 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Bulk loader for large ID,Weight,Type manifests. The file is memory-mapped
+// in line-aligned chunks that are parsed in parallel straight from the mapped
+// bytes; parsed parcels are handed to the ParcelMap in batches.
+class ParcelFileIngestor {
+    private static final long MAX_CHUNK_BYTES = 64L * 1024 * 1024;
+    private static final int DEFAULT_BATCH_SIZE = 4096;
+    private static final String[] PARCEL_IDS = new String[1000];
+    private static final String[] TYPE_NAMES = ParcelType.displayNames();
+
+    static {
+        for (int i = 0; i < PARCEL_IDS.length; i++) {
+            PARCEL_IDS[i] = String.format("P%03d", i);
+        }
+    }
+
+    static final class LineError {
+        final long lineNumber;
+        final String message;
+
+        LineError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return "Error on line " + lineNumber + ": " + message;
+        }
+    }
+
+    static final class Result {
+        final long lines;
+        final long loaded;
+        final List<LineError> errors;
+
+        Result(long lines, long loaded, List<LineError> errors) {
+            this.lines = lines;
+            this.loaded = loaded;
+            this.errors = errors;
+        }
+    }
+
+    private final ParcelMap parcelMap;
+    private final int parallelism;
+    private final int batchSize;
+
+    public ParcelFileIngestor(ParcelMap parcelMap, int parallelism) {
+        this(parcelMap, parallelism, DEFAULT_BATCH_SIZE);
+    }
+
+    public ParcelFileIngestor(ParcelMap parcelMap, int parallelism, int batchSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parcelMap = parcelMap;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    public Result ingest(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            int chunks = bounds.length - 1;
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, chunks)));
+            try {
+                List<Future<ChunkParser>> futures = new ArrayList<>(chunks);
+                for (int i = 0; i < chunks; i++) {
+                    long start = bounds[i];
+                    long length = bounds[i + 1] - start;
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                    futures.add(pool.submit(() -> {
+                        ChunkParser parser = new ChunkParser(buffer);
+                        parser.run();
+                        return parser;
+                    }));
+                }
+
+                // Chunks count their own lines; a prefix sum turns the local
+                // line numbers in their errors into file line numbers.
+                long linesBefore = 0;
+                long loaded = 0;
+                List<LineError> errors = new ArrayList<>();
+                for (Future<ChunkParser> future : futures) {
+                    ChunkParser parser = future.get();
+                    for (LineError error : parser.errors) {
+                        errors.add(new LineError(linesBefore + error.lineNumber, error.message));
+                    }
+                    linesBefore += parser.lines;
+                    loaded += parser.loaded;
+                }
+                return new Result(linesBefore, loaded, errors);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading " + file, e);
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to load " + file + ": " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // Splits the file into roughly equal ranges, moving each cut forward to
+    // just after the next newline so no line straddles two chunks.
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int chunks = (int) Math.max(parallelism, (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        long nominal = Math.max(1, size / chunks);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long cut = nominal;
+        while (cut < size) {
+            long lineEnd = nextLineStart(channel, cut, probe);
+            if (lineEnd >= size) {
+                break;
+            }
+            if (lineEnd > bounds.get(bounds.size() - 1)) {
+                bounds.add(lineEnd);
+            }
+            cut = lineEnd + nominal;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    // Parses one chunk. Fields are scanned in place: IDs map to shared String
+    // constants, weights are accumulated digit by digit and types are matched
+    // byte-wise, so a well-formed line allocates nothing but its Parcel.
+    private final class ChunkParser {
+        private final ByteBuffer buffer;
+        private final List<LineError> errors = new ArrayList<>();
+        private final List<Parcel> batch = new ArrayList<>(batchSize);
+        private final long[] batchLines = new long[batchSize];
+        private long lines;
+        private long loaded;
+        private int pos;
+        private int fieldStart;
+        private int fieldEnd;
+
+        ChunkParser(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void run() {
+            int limit = buffer.limit();
+            pos = 0;
+            while (pos < limit) {
+                int lineStart = pos;
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                pos = lineEnd + 1;
+                if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                lines++;
+                parseLine(lineStart, lineEnd);
+            }
+            flushBatch();
+        }
+
+        private void parseLine(int start, int end) {
+            if (isBlank(start, end)) {
+                error("Empty line found");
+                return;
+            }
+            int firstComma = indexOf(',', start, end);
+            int secondComma = firstComma < 0 ? -1 : indexOf(',', firstComma + 1, end);
+            if (secondComma < 0 || indexOf(',', secondComma + 1, end) >= 0) {
+                error("Invalid format. Expected: ID,Weight,Type");
+                return;
+            }
+
+            trim(start, firstComma);
+            int idNumber = parseId(fieldStart, fieldEnd);
+            if (idNumber < 0) {
+                error("Parcel ID must be in format P followed by 3 digits");
+                return;
+            }
+
+            trim(firstComma + 1, secondComma);
+            double weight = parseWeight(fieldStart, fieldEnd);
+            if (Double.isNaN(weight)) {
+                error("Invalid weight format: " + text(firstComma + 1, secondComma));
+                return;
+            }
+
+            trim(secondComma + 1, end);
+            String type = matchType(fieldStart, fieldEnd);
+            if (type == null) {
+                error(ValidationResult.PARCEL_TYPE_INVALID.getMessage());
+                return;
+            }
+
+            ValidationResult result = Validation.checkWeight(weight);
+            if (!result.isOk()) {
+                error(result.getMessage());
+                return;
+            }
+
+            try {
+                Parcel parcel = new Parcel(PARCEL_IDS[idNumber], weight, type);
+                batchLines[batch.size()] = lines;
+                batch.add(parcel);
+                if (batch.size() == batchSize) {
+                    flushBatch();
+                }
+            } catch (ValidationException e) {
+                error(e.getMessage());
+            }
+        }
+
+        private void flushBatch() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            BitSet rejected = parcelMap.addParcels(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                if (rejected.get(i)) {
+                    errors.add(new LineError(batchLines[i],
+                        "Parcel with ID " + batch.get(i).getId() + " already exists"));
+                } else {
+                    loaded++;
+                }
+            }
+            batch.clear();
+        }
+
+        private int parseId(int start, int end) {
+            if (end - start != 4 || buffer.get(start) != 'P') {
+                return -1;
+            }
+            int value = 0;
+            for (int i = start + 1; i < end; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        // Plain decimals ("12", "3.75") are parsed directly; mantissa / 10^k is
+        // exact for up to 15 significant digits, matching Double.parseDouble.
+        // Anything else (exponents, signs, very long numbers) falls back to it.
+        private double parseWeight(int start, int end) {
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean seenDot = false;
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (seenDot) {
+                        scale++;
+                    }
+                } else if (b == '.' && !seenDot) {
+                    seenDot = true;
+                } else {
+                    return parseWeightSlow(start, end);
+                }
+            }
+            if (digits == 0) {
+                return Double.NaN;
+            }
+            if (digits > 15) {
+                return parseWeightSlow(start, end);
+            }
+            return scale == 0 ? mantissa : mantissa / Validation.POWERS_OF_TEN[scale];
+        }
+
+        private double parseWeightSlow(int start, int end) {
+            try {
+                return Double.parseDouble(text(start, end));
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        private String matchType(int start, int end) {
+            for (int type = 0; type < TYPE_NAMES.length; type++) {
+                if (equalsIgnoreCase(start, end, TYPE_NAMES[type])) {
+                    return TYPE_NAMES[type];
+                }
+            }
+            return null;
+        }
+
+        private boolean equalsIgnoreCase(int start, int end, String expected) {
+            if (end - start != expected.length()) {
+                return false;
+            }
+            for (int i = 0; i < expected.length(); i++) {
+                if (Character.toLowerCase((char) buffer.get(start + i)) != Character.toLowerCase(expected.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Bytes are compared unsigned: UTF-8 bytes of non-ASCII text are
+        // negative as Java bytes and must not count as whitespace.
+        private void trim(int start, int end) {
+            while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+                start++;
+            }
+            while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+                end--;
+            }
+            fieldStart = start;
+            fieldEnd = end;
+        }
+
+        private boolean isBlank(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if ((buffer.get(i) & 0xFF) > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int indexOf(char c, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (buffer.get(i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Only used to build error messages and for the slow weight path.
+        private String text(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(start + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void error(String message) {
+            errors.add(new LineError(lines, message));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Secondary indexes kept by ParcelMap: parcels ordered by ID, weight, fee,
+// type and status. Each index is a concurrent skip list, so ordered walks and
+// range lookups run alongside updates without locking and cost O(log n) plus
+// the parcels visited. Keys are (value, parcel ID) pairs, which keeps them
+// unique and orders parcels with the same value by ID.
+//
+// Weight and type never change. Fee and status changes move the parcel from
+// its old key to its new one; a walk running at that moment may miss it or,
+// like any weakly consistent view, see it at either position.
+class ParcelIndexes {
+    // Type order for sorting is by display name, the way the UI shows types.
+    private static final int[] TYPE_RANK = new int[ParcelType.count()];
+    static {
+        ParcelType[] byName = ParcelType.values();
+        Arrays.sort(byName, Comparator.comparing(ParcelType::getDisplayName));
+        for (int rank = 0; rank < byName.length; rank++) {
+            TYPE_RANK[byName[rank].ordinal()] = rank;
+        }
+    }
+
+    static final class Key implements Comparable<Key> {
+        final double value;
+        final String id;
+
+        Key(double value, String id) {
+            this.value = value;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byValue = Double.compare(value, other.value);
+            return byValue != 0 ? byValue : id.compareTo(other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && compareTo((Key) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(value) * 31 + id.hashCode();
+        }
+    }
+
+    // "" sorts before every ID, so (value, "") is the first key for value.
+    private static final String LOWEST_ID = "";
+
+    private final ConcurrentNavigableMap<String, Parcel> byId = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Key, Parcel> byWeight = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Key, Parcel> byFee = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Key, Parcel> byType = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Key, Parcel> byStatus = new ConcurrentSkipListMap<>();
+
+    // Called with the parcel's monitor held, like the change hooks below, so
+    // no fee or status update for the parcel can interleave.
+    void add(Parcel parcel) {
+        String id = parcel.getId();
+        byId.put(id, parcel);
+        byWeight.put(new Key(parcel.getWeight(), id), parcel);
+        byFee.put(new Key(parcel.getFee(), id), parcel);
+        byType.put(new Key(TYPE_RANK[parcel.getParcelType().ordinal()], id), parcel);
+        byStatus.put(new Key(parcel.getStatus().ordinal(), id), parcel);
+    }
+
+    void feeChanged(Parcel parcel, double previous) {
+        byFee.remove(new Key(previous, parcel.getId()));
+        byFee.put(new Key(parcel.getFee(), parcel.getId()), parcel);
+    }
+
+    void statusChanged(Parcel parcel, ParcelStatus previous) {
+        byStatus.remove(new Key(previous.ordinal(), parcel.getId()));
+        byStatus.put(new Key(parcel.getStatus().ordinal(), parcel.getId()), parcel);
+    }
+
+    void clear() {
+        byId.clear();
+        byWeight.clear();
+        byFee.clear();
+        byType.clear();
+        byStatus.clear();
+    }
+
+    // The ordered views are live and weakly consistent. Their size() walks
+    // the whole index, so iterate them rather than asking for it.
+    Collection<Parcel> orderedById() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+    Collection<Parcel> orderedByWeight() {
+        return Collections.unmodifiableCollection(byWeight.values());
+    }
+
+    Collection<Parcel> orderedByFee() {
+        return Collections.unmodifiableCollection(byFee.values());
+    }
+
+    Collection<Parcel> orderedByType() {
+        return Collections.unmodifiableCollection(byType.values());
+    }
+
+    Collection<Parcel> ofType(ParcelType type) {
+        return valuesFor(byType, TYPE_RANK[type.ordinal()]);
+    }
+
+    Collection<Parcel> withStatus(ParcelStatus status) {
+        return valuesFor(byStatus, status.ordinal());
+    }
+
+    // Inclusive at both ends, ascending.
+    Collection<Parcel> weightBetween(double min, double max) {
+        return between(byWeight, min, max);
+    }
+
+    Collection<Parcel> feeBetween(double min, double max) {
+        return between(byFee, min, max);
+    }
+
+    // The parcels with the n highest fees, highest first; among equal fees
+    // the higher ID comes first.
+    List<Parcel> topByFee(int n) {
+        List<Parcel> top = new ArrayList<>(Math.min(n, 1024));
+        Iterator<Parcel> walk = byFee.descendingMap().values().iterator();
+        while (top.size() < n && walk.hasNext()) {
+            top.add(walk.next());
+        }
+        return top;
+    }
+
+    private static Collection<Parcel> valuesFor(ConcurrentNavigableMap<Key, Parcel> index, int value) {
+        return Collections.unmodifiableCollection(
+            index.subMap(new Key(value, LOWEST_ID), true, new Key(value + 1, LOWEST_ID), false).values());
+    }
+
+    private static Collection<Parcel> between(ConcurrentNavigableMap<Key, Parcel> index, double min, double max) {
+        if (min > max) {
+            return Collections.emptyList();
+        }
+        // (nextUp(max), "") sorts after every key whose value is max.
+        return Collections.unmodifiableCollection(
+            index.subMap(new Key(min, LOWEST_ID), true, new Key(Math.nextUp(max), LOWEST_ID), false).values());
+    }
+}
@@ -0,0 +1,61 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Compares Manager.loadParcelData with the memory-mapped bulk loader on a
+// generated manifest. IDs are limited to P000-P999, so beyond 1000 lines most
+// rows are rejected as duplicates by both loaders; that is part of the cost.
+// Usage: java ParcelIngestBenchmark [lines] [rounds]
+class ParcelIngestBenchmark {
+    private static final String[] TYPES = ParcelType.displayNames();
+    private static final String FILE_NAME = "ingest-benchmark.txt";
+
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path file = Paths.get("data", FILE_NAME);
+        generate(file, lines);
+
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        try {
+            for (int round = 0; round <= rounds; round++) {
+                System.setOut(discard);
+                System.setErr(discard);
+                long start = System.nanoTime();
+                new Manager().loadParcelData(FILE_NAME);
+                long lineByLine = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                new Manager().bulkLoadParcelData(FILE_NAME);
+                long bulk = System.nanoTime() - start;
+                System.setOut(stdout);
+                System.setErr(stderr);
+
+                // Round 0 is a warm-up for the JIT and the page cache.
+                if (round > 0) {
+                    System.out.printf("round %d: loadParcelData %.0f lines/s, bulkLoadParcelData %.0f lines/s (%.2fx)%n",
+                        round, lines / (lineByLine / 1e9), lines / (bulk / 1e9), (double) lineByLine / bulk);
+                }
+            }
+        } finally {
+            System.setOut(stdout);
+            System.setErr(stderr);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void generate(Path file, int lines) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < lines; i++) {
+                writer.write(String.format("P%03d,%.1f,%s%n", i % 1000, 0.5 + (i % 995) / 10.0, TYPES[i % 3]));
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.swing.*;
 import javax.swing.border.*;
 import javax.swing.event.DocumentEvent;
@@ -18,11 +23,43 @@ public class ParcelManagementUI extends JFrame {
     private JTextField newCustomerIdField;
     private JTextField newCustomerNameField;
     private JTable parcelTable;
-    private DefaultTableModel parcelTableModel;
+    private ParcelTableModel parcelTableModel;
     private JTextField searchField;
     private JComboBox<String> searchCriteriaBox;
     private JComboBox<String> sortComboBox;
 
+    // Search runs SEARCH_DELAY_MILLIS after the last keystroke, on its own
+    // thread; each new query bumps searchGeneration, which cancels older ones.
+    private static final int SEARCH_DELAY_MILLIS = 150;
+    private static final double WEIGHT_SEARCH_TOLERANCE = 5;
+    private javax.swing.Timer searchTimer;
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "parcel-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong searchGeneration = new AtomicLong();
+    private Future<?> pendingSearch;
+    private volatile ParcelSearchIndex searchIndex;
+
+    // Loads, processing and reports run as background jobs. Loads and
+    // processing queue up behind each other per type; a report is refused
+    // while another one is being written. The status bar follows the most
+    // recently submitted job that has not finished.
+    private static final String JOB_LOAD_CUSTOMERS = "load-customers";
+    private static final String JOB_LOAD_PARCELS = "load-parcels";
+    private static final String JOB_PROCESS = "process";
+    private static final String JOB_REPORT = "report";
+    private static final String JOB_RECOVER = "recover";
+    private BackgroundJobs jobs;
+    private final java.util.List<BackgroundJobs.Job<?>> activeJobs = new ArrayList<>();
+    private JProgressBar jobProgressBar;
+    private JLabel jobStatusLabel;
+    private JButton cancelJobButton;
+    // Every control that changes the depot lives here; it stays disabled
+    // until the journal replay at startup has finished.
+    private JPanel topPanel;
+
     // Additional UI components
     private JButton generateReportBtn;
     private JButton addNewParcelBtn;
@@ -38,8 +75,56 @@ public class ParcelManagementUI extends JFrame {
 
     public ParcelManagementUI() {
         manager = new Manager();
+        Metrics.getInstance().startReporting();
+        try {
+            ChangeEventLog.start(ChangeEventLog.DEFAULT_FILE);
+        } catch (IOException e) {
+            System.err.println("Event log disabled: " + e.getMessage());
+        }
+        jobs = new BackgroundJobs(new JobStatusMonitor());
+        jobs.register(JOB_LOAD_CUSTOMERS, BackgroundJobs.Policy.QUEUE);
+        jobs.register(JOB_LOAD_PARCELS, BackgroundJobs.Policy.QUEUE);
+        jobs.register(JOB_PROCESS, BackgroundJobs.Policy.QUEUE);
+        jobs.register(JOB_REPORT, BackgroundJobs.Policy.REJECT);
+        jobs.register(JOB_RECOVER, BackgroundJobs.Policy.REJECT);
         setupUI();
         customizeAppearance();
+        recoverDepotState();
+    }
+
+    // Replays the snapshot and journal off the EDT, so the window opens at
+    // once and shows progress. The controls are enabled when the replay is
+    // done; if it fails they stay disabled, since changes made on top of a
+    // partly recovered depot could not be journaled safely.
+    private void recoverDepotState() {
+        setEnabledDeep(topPanel, false);
+        jobs.submit(JOB_RECOVER, "Recovering depot state", false,
+            progress -> {
+                try {
+                    manager.enableJournal(Manager.DEFAULT_SNAPSHOT_FILE, Manager.DEFAULT_JOURNAL_FILE);
+                } catch (IOException e) {
+                    System.err.println("Journal disabled: " + e.getMessage());
+                }
+                manager.loadDefaultTariffs();
+                return null;
+            },
+            result -> {
+                refreshParcelTable();
+                setEnabledDeep(topPanel, true);
+                appendToLog("Depot state recovered");
+                // Build the search index ahead of the first query.
+                ParcelMap store = manager.getParcelMap();
+                searchExecutor.submit(() -> searchIndexFor(store));
+            });
+    }
+
+    private static void setEnabledDeep(Component component, boolean enabled) {
+        component.setEnabled(enabled);
+        if (component instanceof Container) {
+            for (Component child : ((Container) component).getComponents()) {
+                setEnabledDeep(child, enabled);
+            }
+        }
     }
 
     private void customizeAppearance() {
@@ -61,7 +146,7 @@ public class ParcelManagementUI extends JFrame {
         getContentPane().setBackground(SECONDARY_COLOR);
 
         // Main panels
-        JPanel topPanel = new JPanel(new GridLayout(2, 1, 5, 5));
+        topPanel = new JPanel(new GridLayout(2, 1, 5, 5));
         topPanel.setBackground(SECONDARY_COLOR);
         
         JPanel controlPanel = new JPanel(new GridBagLayout());
@@ -111,6 +196,7 @@ public class ParcelManagementUI extends JFrame {
 
         add(topPanel, BorderLayout.NORTH);
         add(contentPanel, BorderLayout.CENTER);
+        add(createJobStatusPanel(), BorderLayout.SOUTH);
 
         pack();
         setLocationRelativeTo(null);
@@ -135,6 +221,88 @@ public class ParcelManagementUI extends JFrame {
         return panel;
     }
 
+    private JPanel createJobStatusPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 0));
+        panel.setBackground(SECONDARY_COLOR);
+
+        jobStatusLabel = new JLabel("Ready");
+        jobProgressBar = new JProgressBar(0, 100);
+        jobProgressBar.setStringPainted(true);
+        jobProgressBar.setString("");
+        cancelJobButton = new JButton("Cancel");
+        cancelJobButton.setEnabled(false);
+        cancelJobButton.addActionListener(e -> cancelCurrentJob());
+
+        panel.add(jobStatusLabel, BorderLayout.WEST);
+        panel.add(jobProgressBar, BorderLayout.CENTER);
+        panel.add(cancelJobButton, BorderLayout.EAST);
+        return panel;
+    }
+
+    // Runs on the EDT, as BackgroundJobs guarantees.
+    private final class JobStatusMonitor implements BackgroundJobs.Monitor {
+        @Override
+        public void jobSubmitted(BackgroundJobs.Job<?> job) {
+            activeJobs.add(job);
+            showJobStatus(job, job.getDescription(), -1, -1);
+        }
+
+        @Override
+        public void jobProgress(BackgroundJobs.Job<?> job, long done, long total, String message) {
+            if (currentJob() == job) {
+                showJobStatus(job, message, done, total);
+            }
+        }
+
+        @Override
+        public void jobFinished(BackgroundJobs.Job<?> job, Exception failure) {
+            activeJobs.remove(job);
+            if (failure != null) {
+                showError(job.getDescription() + " failed: " + failure.getMessage());
+            } else if (job.isCancelled()) {
+                appendToLog("Cancelled: " + job.getDescription());
+            }
+            BackgroundJobs.Job<?> next = currentJob();
+            if (next != null) {
+                showJobStatus(next, next.getDescription(), -1, -1);
+            } else {
+                jobStatusLabel.setText("Ready");
+                jobProgressBar.setIndeterminate(false);
+                jobProgressBar.setValue(0);
+                jobProgressBar.setString("");
+                cancelJobButton.setEnabled(false);
+            }
+        }
+    }
+
+    private BackgroundJobs.Job<?> currentJob() {
+        return activeJobs.isEmpty() ? null : activeJobs.get(activeJobs.size() - 1);
+    }
+
+    // total <= 0 means the amount of work is not known yet.
+    private void showJobStatus(BackgroundJobs.Job<?> job, String message, long done, long total) {
+        jobStatusLabel.setText(message);
+        if (total > 0) {
+            int percent = (int) (done * 100 / total);
+            jobProgressBar.setIndeterminate(false);
+            jobProgressBar.setValue(percent);
+            jobProgressBar.setString(percent + "%");
+        } else {
+            jobProgressBar.setIndeterminate(true);
+            jobProgressBar.setString("");
+        }
+        cancelJobButton.setEnabled(job.isCancellable() && !job.isCancelled());
+    }
+
+    private void cancelCurrentJob() {
+        BackgroundJobs.Job<?> job = currentJob();
+        if (job != null) {
+            job.cancel();
+            cancelJobButton.setEnabled(false);
+            jobStatusLabel.setText("Cancelling: " + job.getDescription());
+        }
+    }
+
     private JPanel createFileLoadingPanel() {
         JPanel panel = createStyledPanel("File Loading");
         GridBagConstraints gbc = new GridBagConstraints();
@@ -236,13 +404,18 @@ public class ParcelManagementUI extends JFrame {
 
         logFileField = new JTextField(20);
         JButton processButton = new JButton("Process Next Customer");
+        JButton lanesButton = new JButton("Serve Queue in Lanes");
         JButton saveLogButton = new JButton("Save Log");
 
         processButton.addActionListener(e -> processNextCustomer());
+        lanesButton.addActionListener(e -> serveQueueInLanes());
         saveLogButton.addActionListener(e -> saveLog());
 
         gbc.gridx = 0; gbc.gridy = 0;
         panel.add(processButton, gbc);
+        gbc.gridx = 1;
+        panel.add(lanesButton, gbc);
+        gbc.gridx = 0;
 
         gbc.gridy = 1;
         panel.add(new JLabel("Log File:"), gbc);
@@ -274,7 +447,7 @@ public class ParcelManagementUI extends JFrame {
         JTextField newParcelIdField = new JTextField(10);
         JTextField newParcelWeightField = new JTextField(10);
         JComboBox<String> newParcelTypeBox = new JComboBox<>(
-            new String[]{"Standard", "Fragile", "Perishable"}
+            ParcelType.displayNames()
         );
         addNewParcelBtn = new JButton("Add New Parcel");
         
@@ -358,11 +531,14 @@ public class ParcelManagementUI extends JFrame {
         searchPanel.add(sortComboBox);
         searchPanel.add(sortButton);
 
+        searchTimer = new javax.swing.Timer(SEARCH_DELAY_MILLIS, e -> searchParcels());
+        searchTimer.setRepeats(false);
         searchField.getDocument().addDocumentListener(new DocumentListener() {
-            public void changedUpdate(DocumentEvent e) { searchParcels(); }
-           public void removeUpdate(DocumentEvent e) { searchParcels(); }
-            public void insertUpdate(DocumentEvent e) { searchParcels(); }
+            public void changedUpdate(DocumentEvent e) { searchTimer.restart(); }
+            public void removeUpdate(DocumentEvent e) { searchTimer.restart(); }
+            public void insertUpdate(DocumentEvent e) { searchTimer.restart(); }
         });
+        searchCriteriaBox.addActionListener(e -> searchTimer.restart());
 
         // Setup table
         setupParcelTable();
@@ -376,15 +552,13 @@ public class ParcelManagementUI extends JFrame {
     }
 
     private void setupParcelTable() {
-        String[] columns = {"ID", "Weight", "Type", "Status", "Fee"};
-        parcelTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        parcelTableModel = new ParcelTableModel(manager::getParcelMap);
         
         parcelTable = new JTable(parcelTableModel);
+        // Cells hold raw numbers; only the rows being painted get formatted.
+        TableColumnModel columnModel = parcelTable.getColumnModel();
+        columnModel.getColumn(ParcelTableModel.COLUMN_WEIGHT).setCellRenderer(new FormattingRenderer("%.2f"));
+        columnModel.getColumn(ParcelTableModel.COLUMN_FEE).setCellRenderer(new FormattingRenderer("$%.2f"));
         parcelTable.setFont(REGULAR_FONT);
         parcelTable.getTableHeader().setFont(HEADER_FONT);
         parcelTable.setRowHeight(25);
@@ -394,94 +568,116 @@ public class ParcelManagementUI extends JFrame {
         parcelTable.setSelectionForeground(Color.WHITE);
     }
 
+    private static final class FormattingRenderer extends DefaultTableCellRenderer {
+        private static final long serialVersionUID = 1L;
+
+        private final String format;
+
+        FormattingRenderer(String format) {
+            this.format = format;
+            setHorizontalAlignment(SwingConstants.LEFT);
+        }
+
+        @Override
+        protected void setValue(Object value) {
+            setText(value == null ? "" : String.format(format, value));
+        }
+    }
+
+    // Runs on the EDT when the debounce timer fires; the query itself runs on
+    // the search thread and its result is dropped if a newer query started.
     private void searchParcels() {
-        String searchTerm = searchField.getText().toLowerCase();
+        String searchTerm = searchField.getText().trim();
         String criteria = (String) searchCriteriaBox.getSelectedItem();
-        Collection<Parcel> allParcels = manager.getAllParcels();
-        Vector<Vector<Object>> filteredData = new Vector<>();
-
-        for (Parcel parcel : allParcels) {
-            boolean matches = switch (criteria) {
-                case "ID" -> parcel.getId().toLowerCase().contains(searchTerm);
-                case "Type" -> parcel.getType().toLowerCase().contains(searchTerm);
+        ParcelMap store = manager.getParcelMap();
+        long generation = searchGeneration.incrementAndGet();
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+        }
+        if (searchTerm.isEmpty()) {
+            parcelTableModel.showAll();
+            return;
+        }
+        pendingSearch = searchExecutor.submit(() -> {
+            java.util.function.BooleanSupplier cancelled = () -> searchGeneration.get() != generation;
+            ParcelSearchIndex index = searchIndexFor(store);
+            java.util.List<Parcel> results = switch (criteria) {
+                case "ID" -> index.findByIdContaining(searchTerm, cancelled);
+                case "Type" -> index.findByTypeContaining(searchTerm, cancelled);
                 case "Weight Range" -> {
-                    try {
-                        double weight = Double.parseDouble(searchTerm);
-                        yield Math.abs(parcel.getWeight() - weight) <= 5;
-                    } catch (NumberFormatException e) {
-                        yield false;
-                    }
+                    double weight = Validation.parseWeight(searchTerm);
+                    yield Double.isNaN(weight) ? java.util.List.<Parcel>of()
+                        : index.findByWeightNear(weight, WEIGHT_SEARCH_TOLERANCE, cancelled);
                 }
-                case "Status" -> String.valueOf(parcel.isProcessed()).toLowerCase().contains(searchTerm);
-                default -> false;
+                case "Status" -> index.findByProcessedText(searchTerm, cancelled);
+                default -> java.util.List.<Parcel>of();
             };
+            if (results != null) {
+                SwingUtilities.invokeLater(() -> {
+                    if (searchGeneration.get() == generation) {
+                        parcelTableModel.showParcels(results);
+                    }
+                });
+            }
+        });
+    }
 
-            if (matches || searchTerm.isEmpty()) {
-                Vector<Object> row = new Vector<>();
-                row.add(parcel.getId());
-                row.add(String.format("%.2f", parcel.getWeight()));
-                row.add(parcel.getType());
-                row.add(parcel.isProcessed() ? "Processed" : "Pending");
-                row.add(String.format("$%.2f", parcel.getFee()));
-                filteredData.add(row);
+    // Only called on the search thread. Rebuilt when the Manager has swapped
+    // in a different store (e.g. after restoring a snapshot).
+    private ParcelSearchIndex searchIndexFor(ParcelMap store) {
+        ParcelSearchIndex index = searchIndex;
+        if (index == null || index.getStore() != store) {
+            if (index != null) {
+                index.close();
             }
+            index = new ParcelSearchIndex(store);
+            searchIndex = index;
         }
-
-        parcelTableModel.setDataVector(filteredData, new Vector<>(Arrays.asList(
-            "ID", "Weight", "Type", "Status", "Fee")));
+        return index;
     }
 
     private void sortParcels() {
         String sortBy = (String) sortComboBox.getSelectedItem();
-        java.util.List<Parcel> parcels = new ArrayList<>(manager.getAllParcels());
-        
-        switch (sortBy) {
-            case "ID" -> parcels.sort(Comparator.comparing(Parcel::getId));
-            case "Weight" -> parcels.sort(Comparator.comparing(Parcel::getWeight));
-            case "Type" -> parcels.sort(Comparator.comparing(Parcel::getType));
-            case "Fee" -> parcels.sort(Comparator.comparing(Parcel::getFee));
-        }
+        ParcelMap store = manager.getParcelMap();
+        // The map keeps these orders up to date, so sorting is one walk.
+        Collection<Parcel> ordered = switch (sortBy) {
+            case "Weight" -> store.getParcelsOrderedByWeight();
+            case "Type" -> store.getParcelsOrderedByType();
+            case "Fee" -> store.getParcelsOrderedByFee();
+            default -> store.getParcelsOrderedById();
+        };
 
-        refreshParcelTable(parcels);
+        parcelTableModel.showParcels(new ArrayList<>(ordered));
         appendToLog("Sorted parcels by: " + sortBy);
     }
 
+    // Publishes pending parcel changes; the cost follows the number of
+    // changed rows, not the table size.
     private void refreshParcelTable() {
-        refreshParcelTable(manager.getAllParcels());
-    }
-
-    private void refreshParcelTable(Collection<Parcel> parcels) {
-        parcelTableModel.setRowCount(0);
-        for (Parcel parcel : parcels) {
-            parcelTableModel.addRow(new Object[]{
-                parcel.getId(),
-                String.format("%.2f", parcel.getWeight()),
-                parcel.getType(),
-                parcel.isProcessed() ? "Processed" : "Pending",
-                String.format("$%.2f", parcel.getFee())
-            });
-        }
+        parcelTableModel.showAll();
     }
 
     private void highlightParcelInTable(Parcel parcel) {
-        for (int i = 0; i < parcelTableModel.getRowCount(); i++) {
-            if (parcelTableModel.getValueAt(i, 0).equals(parcel.getId())) {
-                parcelTable.setRowSelectionInterval(i, i);
-                parcelTable.scrollRectToVisible(parcelTable.getCellRect(i, 0, true));
-                break;
-            }
+        int row = parcelTableModel.rowOf(parcel);
+        if (row < 0) {
+            parcelTableModel.showAll();
+            row = parcelTableModel.rowOf(parcel);
+        }
+        if (row >= 0) {
+            parcelTable.setRowSelectionInterval(row, row);
+            parcelTable.scrollRectToVisible(parcelTable.getCellRect(row, 0, true));
         }
     }
 
     private void loadCustomerData() {
         String filename = customerFileField.getText().trim();
         if (!filename.isEmpty()) {
-            try {
-                manager.loadCustomerData(filename);
-                appendToLog("Loaded customer data from: " + filename);
-            } catch (Exception e) {
-                showError("Error loading customer data: " + e.getMessage());
-            }
+            jobs.submit(JOB_LOAD_CUSTOMERS, "Loading customers from " + filename, true,
+                progress -> {
+                    manager.loadCustomerData(filename, progress);
+                    return null;
+                },
+                result -> appendToLog("Loaded customer data from: " + filename));
         } else {
             showError("Please enter a customer data filename");
         }
@@ -490,13 +686,17 @@ public class ParcelManagementUI extends JFrame {
     private void loadParcelData() {
         String filename = parcelFileField.getText().trim();
         if (!filename.isEmpty()) {
-            try {
-                manager.loadParcelData(filename);
-                appendToLog("Loaded parcel data from: " + filename);
-                refreshParcelTable();
-            } catch (Exception e) {
-                showError("Error loading parcel data: " + e.getMessage());
-            }
+            // The table follows the map as parcels arrive; the refresh at
+            // the end publishes whatever is still pending.
+            jobs.submit(JOB_LOAD_PARCELS, "Loading parcels from " + filename, true,
+                progress -> {
+                    manager.loadParcelData(filename, progress);
+                    return null;
+                },
+                result -> {
+                    appendToLog("Loaded parcel data from: " + filename);
+                    refreshParcelTable();
+                });
         } else {
             showError("Please enter a parcel data filename");
         }
@@ -549,17 +749,26 @@ public class ParcelManagementUI extends JFrame {
     }
 
     private void processNextCustomer() {
-        try {
-            Customer processed = manager.processNextCustomer();
-            if (processed != null) {
-                appendToLog("Processed customer: " + processed.getName() + " (ID: " + processed.getId() + ")");
+        jobs.submit(JOB_PROCESS, "Processing next customer", false,
+            progress -> manager.processNextCustomer(),
+            processed -> {
+                if (processed != null) {
+                    appendToLog("Processed customer: " + processed.getName() + " (ID: " + processed.getId() + ")");
+                    refreshParcelTable();
+                } else {
+                    appendToLog("No customers in queue to process");
+                }
+            });
+    }
+
+    // Lane wait times go to the log; see Manager.processAllCustomersInLanes.
+    private void serveQueueInLanes() {
+        jobs.submit(JOB_PROCESS, "Serving queue in lanes", false,
+            progress -> manager.processAllCustomersInLanes(),
+            served -> {
+                appendToLog("Served " + served + " customers in lanes");
                 refreshParcelTable();
-            } else {
-                appendToLog("No customers in queue to process");
-            }
-        } catch (Exception e) {
-            showError(e.getMessage());
-        }
+            });
     }
 
     private void saveLog() {
@@ -580,11 +789,17 @@ public class ParcelManagementUI extends JFrame {
     private void generateReport() {
         String filename = reportFileField.getText().trim();
         if (!filename.isEmpty()) {
-            try {
-                manager.processAndGenerateReport(filename);
-                appendToLog("Generated report: " + filename);
-            } catch (Exception e) {
-                showError("Error generating report: " + e.getMessage());
+            BackgroundJobs.Job<Void> job = jobs.submit(JOB_REPORT, "Generating report " + filename, false,
+                progress -> {
+                    manager.processAndGenerateReport(filename, progress);
+                    return null;
+                },
+                result -> {
+                    appendToLog("Generated report: " + filename);
+                    refreshParcelTable();
+                });
+            if (job == null) {
+                showError("A report is already being generated");
             }
         } else {
             showError("Please enter a report filename");
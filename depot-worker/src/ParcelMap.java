@@ -5,25 +5,78 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Every change to the map is published to ChangeEventBus with the map as
+// the event's source; that is how the table and search index follow it.
 class ParcelMap {
-    private Map<String, Parcel> parcels;
-    private static final int MAX_PARCELS = 1000;
+    // ConcurrentHashMap gives us per-bin locking on writes and lock-free reads,
+    // so several counters can add and update parcels at the same time.
+    private final ConcurrentMap<String, Parcel> parcels;
+    // Replaced, not emptied, by clear().
+    private volatile ParcelRows rows = new ParcelRows();
+    private final ParcelIndexes indexes = new ParcelIndexes();
+    private final ParcelAggregates aggregates = new ParcelAggregates();
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final ChangeEventBus EVENTS = ChangeEventBus.getInstance();
 
     public ParcelMap() {
-        parcels = new HashMap<>();
+        parcels = new ConcurrentHashMap<>(INITIAL_CAPACITY, 0.75f,
+            Runtime.getRuntime().availableProcessors());
     }
 
     public void addParcel(Parcel parcel) throws ValidationException {
         if (parcel == null) {
             throw new ValidationException("Parcel cannot be null");
         }
-        if (parcels.size() >= MAX_PARCELS) {
-            throw new ValidationException("Maximum parcel limit reached");
-        }
-        if (parcels.containsKey(parcel.getId())) {
+        if (!tryAddParcel(parcel)) {
             throw new ValidationException("Parcel with ID " + parcel.getId() + " already exists");
         }
-        parcels.put(parcel.getId(), parcel);
+    }
+
+    // Non-throwing variant for load paths: returns false for a duplicate ID.
+    public boolean tryAddParcel(Parcel parcel) {
+        if (parcels.putIfAbsent(parcel.getId(), parcel) != null) {
+            return false;
+        }
+        synchronized (parcel) {
+            parcel.attach(this, rows.append(parcel));
+            indexes.add(parcel);
+            aggregates.add(parcel);
+        }
+        EVENTS.parcelAdded(this, parcel);
+        return true;
+    }
+
+    // Adds a batch of parcels, appending the accepted ones to the store order
+    // in one step. Returns the positions in the batch that were rejected as
+    // duplicates.
+    public BitSet addParcels(List<Parcel> batch) {
+        BitSet rejected = new BitSet(batch.size());
+        List<Parcel> accepted = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Parcel parcel = batch.get(i);
+            if (parcels.putIfAbsent(parcel.getId(), parcel) != null) {
+                rejected.set(i);
+            } else {
+                accepted.add(parcel);
+            }
+        }
+        int row = rows.appendAll(accepted);
+        for (Parcel parcel : accepted) {
+            synchronized (parcel) {
+                // Indexed with the values it has now; from here on the
+                // setters keep the indexes in step.
+                parcel.attach(this, row++);
+                indexes.add(parcel);
+                aggregates.add(parcel);
+            }
+        }
+        for (Parcel parcel : accepted) {
+            EVENTS.parcelAdded(this, parcel);
+        }
+        return rejected;
     }
 
     public Parcel findParcel(String id) {
@@ -38,8 +91,117 @@ class ParcelMap {
         parcel.setStatus(status);
     }
 
+    // Weakly consistent: iteration never throws ConcurrentModificationException
+    // and may or may not reflect parcels added after it started.
     public Collection<Parcel> getAllParcels() {
-        return parcels.values();
+        return Collections.unmodifiableCollection(parcels.values());
+    }
+
+    public int size() {
+        return parcels.size();
+    }
+
+    public double getTotalFees(String type) {
+        ParcelType parcelType = ParcelType.fromName(type);
+        return parcelType == null ? 0.0 : aggregates.forType(parcelType).getTotalFees();
+    }
+
+    public Map<String, Double> getTotalFeesByType() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (ParcelType type : ParcelType.values()) {
+            result.put(type.getDisplayName(), aggregates.forType(type).getTotalFees());
+        }
+        return result;
+    }
+
+    public int countByStatus(ParcelStatus status) {
+        return (int) aggregates.forStatus(status).getCount();
+    }
+
+    // Running totals by status and type; queries do not scan the parcels.
+    public ParcelAggregates getAggregates() {
+        return aggregates;
+    }
+
+    // Ordered walks over the secondary indexes. The collections are live,
+    // weakly consistent views; parcels with equal values come in ID order.
+    public Collection<Parcel> getParcelsOrderedById() {
+        return indexes.orderedById();
+    }
+
+    public Collection<Parcel> getParcelsOrderedByWeight() {
+        return indexes.orderedByWeight();
+    }
+
+    public Collection<Parcel> getParcelsOrderedByFee() {
+        return indexes.orderedByFee();
+    }
+
+    // Types in display-name order.
+    public Collection<Parcel> getParcelsOrderedByType() {
+        return indexes.orderedByType();
+    }
+
+    public Collection<Parcel> getParcelsOfType(ParcelType type) {
+        return indexes.ofType(type);
+    }
+
+    public Collection<Parcel> getParcelsWithStatus(ParcelStatus status) {
+        return indexes.withStatus(status);
+    }
+
+    // Both ranges are inclusive.
+    public Collection<Parcel> getParcelsInWeightRange(double min, double max) {
+        return indexes.weightBetween(min, max);
+    }
+
+    public Collection<Parcel> getParcelsInFeeRange(double min, double max) {
+        return indexes.feeBetween(min, max);
+    }
+
+    public List<Parcel> getTopParcelsByFee(int n) {
+        return indexes.topByFee(n);
+    }
+
+    // Parcels in store order: row r holds the r-th parcel added since the
+    // map was created or last cleared. Rows never move.
+    public int rowCount() {
+        return rows.size();
+    }
+
+    public Parcel parcelAt(int row) {
+        return rows.parcelAt(row);
+    }
+
+    // Called by Parcel setters (under the parcel's monitor) once attached,
+    // with the value the setter replaced.
+    void feeChanged(Parcel parcel, double previous) {
+        indexes.feeChanged(parcel, previous);
+        aggregates.feeChanged(parcel, previous);
+        EVENTS.parcelFeeChanged(this, parcel);
+    }
+
+    void statusChanged(Parcel parcel, ParcelStatus previous) {
+        indexes.statusChanged(parcel, previous);
+        aggregates.statusChanged(parcel, previous);
+        EVENTS.parcelStatusChanged(this, parcel, previous);
+    }
+
+    // Not published: processing always sets the fee next, and that event
+    // covers both.
+    void processedChanged(Parcel parcel) {
+        aggregates.processedChanged(parcel);
+    }
+
+    private void clear() {
+        for (Parcel parcel : parcels.values()) {
+            parcel.detach();
+        }
+        parcels.clear();
+        rows = new ParcelRows();
+        indexes.clear();
+        aggregates.clear();
+        EVENTS.parcelsCleared(this);
     }
 
     public void saveToFile(String filename) throws IOException {
@@ -57,7 +219,7 @@ class ParcelMap {
     }
 
     public void loadFromFile(String filename) throws IOException, ValidationException {
-        parcels.clear();
+        clear();
         Path path = Paths.get("data", filename);
         List<String> lines = Files.readAllLines(path);
         for (String line : lines) {
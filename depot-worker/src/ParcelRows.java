@@ -0,0 +1,75 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Store order of a ParcelMap: row r holds the r-th parcel added, and rows
+// never move, so the table and the search index can address parcels by row.
+// An append claims its rows with one atomic add and takes no lock. Rows live
+// in chunks that double in size and are never copied, so writers never race
+// a resize. Rows are published in order: size() counts a row only once it
+// and every row before it are written, so parcelAt is never null below it.
+class ParcelRows {
+    private static final int FIRST_CHUNK_BITS = 10;
+    private static final int FIRST_CHUNK = 1 << FIRST_CHUNK_BITS;
+
+    private final AtomicReferenceArray<Parcel[]> chunks =
+        new AtomicReferenceArray<>(Integer.SIZE - FIRST_CHUNK_BITS);
+    private final AtomicInteger claimed = new AtomicInteger();
+    private volatile int published;
+
+    public int append(Parcel parcel) {
+        int row = claimed.getAndIncrement();
+        store(row, parcel);
+        publish(row, 1);
+        return row;
+    }
+
+    // Appends a batch as consecutive rows; returns the first row used.
+    public int appendAll(List<Parcel> batch) {
+        int first = claimed.getAndAdd(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            store(first + i, batch.get(i));
+        }
+        publish(first, batch.size());
+        return first;
+    }
+
+    // Null for a row that does not exist yet.
+    public Parcel parcelAt(int row) {
+        if (row < 0 || row >= published) {
+            return null;
+        }
+        int position = row + FIRST_CHUNK;
+        int chunk = chunkOf(position);
+        return chunks.get(chunk)[position - (FIRST_CHUNK << chunk)];
+    }
+
+    public int size() {
+        return published;
+    }
+
+    private void store(int row, Parcel parcel) {
+        int position = row + FIRST_CHUNK;
+        int chunk = chunkOf(position);
+        Parcel[] rows = chunks.get(chunk);
+        if (rows == null) {
+            chunks.compareAndSet(chunk, null, new Parcel[FIRST_CHUNK << chunk]);
+            rows = chunks.get(chunk);
+        }
+        rows[position - (FIRST_CHUNK << chunk)] = parcel;
+    }
+
+    // Chunk k holds positions [FIRST_CHUNK << k, FIRST_CHUNK << (k + 1)).
+    private static int chunkOf(int position) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(position) - FIRST_CHUNK_BITS;
+    }
+
+    // Waits for the appends that claimed earlier rows, which are only a few
+    // stores from publishing, then publishes these rows after them.
+    private void publish(int first, int count) {
+        while (published != first) {
+            Thread.yield();
+        }
+        published = first + count;
+    }
+}
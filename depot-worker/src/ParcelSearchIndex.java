@@ -0,0 +1,278 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+// Search index over one ParcelMap for the UI's search box. IDs are indexed by
+// every 1-, 2- and 3-character gram, so a "contains" query of up to three
+// characters is a single posting list and longer ones verify the candidates
+// of their rarest trigram. Types have one posting list each, weights sit in a
+// sorted map for range queries, and the processed flag is a bit per row.
+// Postings are store rows in ascending order, so results come back in the
+// order the parcels were added.
+//
+// The index follows the map's events on ChangeEventBus, on a thread of its
+// own: new rows are indexed as they appear and status changes flip their bit,
+// so results may trail the map by the bus's lag. Queries accept a
+// cancellation check and return null once it reports true.
+class ParcelSearchIndex implements ChangeEventBus.Subscriber {
+    private static final int MAX_GRAM = 3;
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+    private final ParcelMap store;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, IntList> idGrams = new HashMap<>();
+    private final IntList[] typeRows = new IntList[ParcelType.count()];
+    private final NavigableMap<Double, IntList> weightRows = new TreeMap<>();
+    private final BitSet processedRows = new BitSet();
+    private int indexedRows;
+    private final ChangeEventBus.Subscription subscription;
+
+    // Growable int array; rows are appended in ascending order.
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    ParcelSearchIndex(ParcelMap store) {
+        this.store = store;
+        for (int type = 0; type < typeRows.length; type++) {
+            typeRows[type] = new IntList();
+        }
+        subscription = ChangeEventBus.getInstance().subscribe("search", this);
+        catchUp();
+    }
+
+    public ParcelMap getStore() {
+        return store;
+    }
+
+    public void close() {
+        subscription.close();
+    }
+
+    // Parcels whose ID contains term, ignoring case.
+    public List<Parcel> findByIdContaining(String term, BooleanSupplier cancelled) {
+        String needle = term.toLowerCase();
+        BitSet rows = new BitSet();
+        lock.readLock().lock();
+        try {
+            if (needle.isEmpty()) {
+                rows.set(0, indexedRows);
+            } else if (needle.length() <= MAX_GRAM) {
+                IntList postings = idGrams.get(needle);
+                if (postings != null) {
+                    for (int i = 0; i < postings.size; i++) {
+                        rows.set(postings.values[i]);
+                    }
+                }
+            } else {
+                IntList rarest = null;
+                for (int start = 0; start + MAX_GRAM <= needle.length(); start++) {
+                    IntList postings = idGrams.get(needle.substring(start, start + MAX_GRAM));
+                    if (postings == null) {
+                        return List.of();
+                    }
+                    if (rarest == null || postings.size < rarest.size) {
+                        rarest = postings;
+                    }
+                }
+                for (int i = 0; i < rarest.size; i++) {
+                    if (i % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                        return null;
+                    }
+                    int row = rarest.values[i];
+                    if (containsIgnoreCase(store.parcelAt(row).getId(), needle)) {
+                        rows.set(row);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toParcels(rows, cancelled);
+    }
+
+    // Parcels whose type name contains term, ignoring case.
+    public List<Parcel> findByTypeContaining(String term, BooleanSupplier cancelled) {
+        String needle = term.toLowerCase();
+        BitSet rows = new BitSet();
+        lock.readLock().lock();
+        try {
+            for (ParcelType type : ParcelType.values()) {
+                if (type.getDisplayName().toLowerCase().contains(needle)) {
+                    IntList postings = typeRows[type.ordinal()];
+                    for (int i = 0; i < postings.size; i++) {
+                        rows.set(postings.values[i]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toParcels(rows, cancelled);
+    }
+
+    // Parcels weighing within tolerance of weight, inclusive.
+    public List<Parcel> findByWeightNear(double weight, double tolerance, BooleanSupplier cancelled) {
+        BitSet rows = new BitSet();
+        lock.readLock().lock();
+        try {
+            int visited = 0;
+            for (IntList postings : weightRows.subMap(weight - tolerance, true, weight + tolerance, true).values()) {
+                if (++visited % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    return null;
+                }
+                for (int i = 0; i < postings.size; i++) {
+                    rows.set(postings.values[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toParcels(rows, cancelled);
+    }
+
+    // Matches the processed flag's text ("true"/"false") against term, the
+    // way the search box always has.
+    public List<Parcel> findByProcessedText(String term, BooleanSupplier cancelled) {
+        String needle = term.toLowerCase();
+        boolean wantProcessed = "true".contains(needle);
+        boolean wantPending = "false".contains(needle);
+        BitSet rows;
+        lock.readLock().lock();
+        try {
+            rows = (BitSet) processedRows.clone();
+            if (wantPending) {
+                rows.flip(0, indexedRows);
+                if (wantProcessed) {
+                    rows.set(0, indexedRows);
+                }
+            } else if (!wantProcessed) {
+                rows.clear();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toParcels(rows, cancelled);
+    }
+
+    @Override
+    public void onEvent(ChangeEvent event, boolean endOfBatch) {
+        if (event.getSource() != store) {
+            return;
+        }
+        switch (event.getType()) {
+            case PARCEL_ADDED -> catchUp();
+            case PARCEL_STATUS_CHANGED, PARCEL_FEE_CHANGED -> parcelChanged(event.getParcel());
+            case PARCELS_CLEARED -> rebuild();
+            default -> { }
+        }
+    }
+
+    // Some changes were never seen, so start again from the store.
+    @Override
+    public void onMissed(long count) {
+        rebuild();
+    }
+
+    private void parcelChanged(Parcel parcel) {
+        int row = parcel.getStoreRow();
+        lock.writeLock().lock();
+        try {
+            if (row >= 0 && row < indexedRows) {
+                processedRows.set(row, parcel.isProcessed());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        lock.writeLock().lock();
+        try {
+            idGrams.clear();
+            for (int type = 0; type < typeRows.length; type++) {
+                typeRows[type] = new IntList();
+            }
+            weightRows.clear();
+            processedRows.clear();
+            indexedRows = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        catchUp();
+    }
+
+    // Rows are appended to the store in order and never move, so indexing
+    // everything from the last indexed row up to the current count is enough.
+    private void catchUp() {
+        lock.writeLock().lock();
+        try {
+            int rowCount = store.rowCount();
+            for (int row = indexedRows; row < rowCount; row++) {
+                Parcel parcel = store.parcelAt(row);
+                if (parcel == null) {
+                    break;
+                }
+                index(row, parcel);
+                indexedRows = row + 1;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(int row, Parcel parcel) {
+        String id = parcel.getId().toLowerCase();
+        for (int length = 1; length <= MAX_GRAM; length++) {
+            for (int start = 0; start + length <= id.length(); start++) {
+                String gram = id.substring(start, start + length);
+                IntList postings = idGrams.computeIfAbsent(gram, key -> new IntList());
+                // A gram repeated within one ID is posted once.
+                if (postings.size == 0 || postings.values[postings.size - 1] != row) {
+                    postings.add(row);
+                }
+            }
+        }
+        typeRows[parcel.getParcelType().ordinal()].add(row);
+        weightRows.computeIfAbsent(parcel.getWeight(), key -> new IntList()).add(row);
+        processedRows.set(row, parcel.isProcessed());
+    }
+
+    private List<Parcel> toParcels(BitSet rows, BooleanSupplier cancelled) {
+        List<Parcel> parcels = new ArrayList<>(rows.cardinality());
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            if (parcels.size() % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                return null;
+            }
+            Parcel parcel = store.parcelAt(row);
+            if (parcel != null) {
+                parcels.add(parcel);
+            }
+        }
+        return parcels;
+    }
+
+    private static boolean containsIgnoreCase(String text, String lowerNeedle) {
+        for (int start = 0; start + lowerNeedle.length() <= text.length(); start++) {
+            if (text.regionMatches(true, start, lowerNeedle, 0, lowerNeedle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
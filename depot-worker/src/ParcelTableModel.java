@@ -0,0 +1,266 @@
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+// Table model that reads straight from the ParcelMap instead of copying every
+// parcel into row vectors. In the default view table row r is store row r.
+// Changes to the store arrive from ChangeEventBus on the bus's events-table
+// thread, so the threads making them never wait on the table. They are
+// collected as dirty rows and published on the EDT in one batch per bus
+// batch as row-insert and row-update events, so the cost of a refresh
+// follows the number of changes rather than the number of parcels.
+// Cells hold raw values; ParcelManagementUI's renderers format the visible ones.
+//
+// A search or sort result can be shown instead (showParcels); that view is a
+// fixed list, which is updated in place but does not pick up new parcels.
+class ParcelTableModel extends AbstractTableModel implements ChangeEventBus.Subscriber {
+    private static final long serialVersionUID = 1L;
+
+    static final int COLUMN_ID = 0;
+    static final int COLUMN_WEIGHT = 1;
+    static final int COLUMN_TYPE = 2;
+    static final int COLUMN_STATUS = 3;
+    static final int COLUMN_FEE = 4;
+    private static final String[] COLUMNS = {"ID", "Weight", "Type", "Status", "Fee"};
+
+    private final Supplier<ParcelMap> source;
+    // Written on the EDT, read by the events thread to drop events from
+    // other stores.
+    private volatile ParcelMap store;
+    private final ChangeEventBus.Subscription subscription;
+    // Only touched on the events thread.
+    private boolean changedInBatch;
+
+    // Rows published to the table; only touched on the EDT.
+    private int rowCount;
+    private List<Parcel> view;
+    private Map<Parcel, Integer> viewRows;
+
+    // Filled by any thread, drained on the EDT.
+    private final Object dirtyLock = new Object();
+    private BitSet dirtyRows = new BitSet();
+    private boolean cleared;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // source is asked for the current store on every refresh, so the model
+    // follows a Manager that swaps in a restored ParcelMap.
+    ParcelTableModel(Supplier<ParcelMap> source) {
+        this.source = source;
+        attach(source.get());
+        subscription = ChangeEventBus.getInstance().subscribe("table", this);
+    }
+
+    // Stops following the store.
+    public void close() {
+        subscription.close();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == COLUMN_WEIGHT || column == COLUMN_FEE ? Double.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Parcel parcel = parcelAt(row);
+        if (parcel == null) {
+            return null; // Store cleared; the pending flush will resize the table.
+        }
+        return switch (column) {
+            case COLUMN_ID -> parcel.getId();
+            case COLUMN_WEIGHT -> parcel.getWeight();
+            case COLUMN_TYPE -> parcel.getType();
+            case COLUMN_STATUS -> parcel.isProcessed() ? "Processed" : "Pending";
+            case COLUMN_FEE -> parcel.getFee();
+            default -> null;
+        };
+    }
+
+    public Parcel parcelAt(int row) {
+        return view == null ? store.parcelAt(row) : view.get(row);
+    }
+
+    // Table row showing the parcel, or -1 if it is not in the current view.
+    public int rowOf(Parcel parcel) {
+        if (view != null) {
+            Integer row = viewRows.get(parcel);
+            return row == null ? -1 : row;
+        }
+        int row = parcel.getStoreRow();
+        return row >= 0 && row < rowCount && store.parcelAt(row) == parcel ? row : -1;
+    }
+
+    // Switches back to the live store view, or just publishes pending changes
+    // if it is already showing.
+    public void showAll() {
+        ParcelMap current = source.get();
+        if (current != store) {
+            attach(current);
+            fireTableDataChanged();
+        } else if (view != null) {
+            view = null;
+            viewRows = null;
+            takeDirtyRows();
+            rowCount = store.rowCount();
+            fireTableDataChanged();
+        } else {
+            flush();
+        }
+    }
+
+    public void showParcels(List<Parcel> parcels) {
+        view = parcels;
+        viewRows = new HashMap<>(parcels.size() * 2);
+        for (int i = 0; i < parcels.size(); i++) {
+            viewRows.put(parcels.get(i), i);
+        }
+        rowCount = parcels.size();
+        takeDirtyRows();
+        fireTableDataChanged();
+    }
+
+    @Override
+    public void onEvent(ChangeEvent event, boolean endOfBatch) {
+        ParcelMap current = store;
+        switch (event.getType()) {
+            case PARCEL_ADDED -> changedInBatch |= event.getSource() == current;
+            case PARCEL_STATUS_CHANGED, PARCEL_FEE_CHANGED -> {
+                if (event.getSource() == current) {
+                    markDirty(event.getParcel().getStoreRow());
+                }
+            }
+            case PARCEL_PROCESSED -> {
+                // Comes from a Worker, which does not know the store.
+                int row = event.getParcel().getStoreRow();
+                if (row >= 0 && row < current.rowCount() && current.parcelAt(row) == event.getParcel()) {
+                    markDirty(row);
+                }
+            }
+            case PARCELS_CLEARED -> {
+                if (event.getSource() == current) {
+                    synchronized (dirtyLock) {
+                        cleared = true;
+                    }
+                    changedInBatch = true;
+                }
+            }
+            default -> {
+                // Queue changes are not shown here.
+            }
+        }
+        if (endOfBatch && changedInBatch) {
+            changedInBatch = false;
+            scheduleFlush();
+        }
+    }
+
+    // Some changes were never seen, so redraw everything.
+    @Override
+    public void onMissed(long count) {
+        synchronized (dirtyLock) {
+            cleared = true;
+        }
+        changedInBatch = false;
+        scheduleFlush();
+    }
+
+    private void markDirty(int row) {
+        if (row >= 0) {
+            synchronized (dirtyLock) {
+                dirtyRows.set(row);
+            }
+            changedInBatch = true;
+        }
+    }
+
+    private void attach(ParcelMap map) {
+        store = map;
+        view = null;
+        viewRows = null;
+        takeDirtyRows();
+        rowCount = store.rowCount();
+    }
+
+    // One pending EDT task at a time; changes made before it runs share it.
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        boolean wasCleared;
+        BitSet dirty;
+        synchronized (dirtyLock) {
+            wasCleared = cleared;
+            cleared = false;
+            dirty = takeDirtyRows();
+        }
+        if (view != null) {
+            flushView(dirty, wasCleared);
+            return;
+        }
+        if (wasCleared) {
+            rowCount = store.rowCount();
+            fireTableDataChanged();
+            return;
+        }
+        int published = rowCount;
+        int current = store.rowCount();
+        // Runs of consecutive dirty rows become one update event each.
+        for (int start = dirty.nextSetBit(0); start >= 0 && start < published; ) {
+            int end = Math.min(dirty.nextClearBit(start), published);
+            fireTableRowsUpdated(start, end - 1);
+            start = dirty.nextSetBit(end);
+        }
+        if (current > published) {
+            rowCount = current;
+            fireTableRowsInserted(published, current - 1);
+        }
+    }
+
+    private void flushView(BitSet dirty, boolean wasCleared) {
+        if (wasCleared) {
+            fireTableDataChanged();
+            return;
+        }
+        for (int storeRow = dirty.nextSetBit(0); storeRow >= 0; storeRow = dirty.nextSetBit(storeRow + 1)) {
+            if (storeRow >= store.rowCount()) {
+                break;
+            }
+            Integer row = viewRows.get(store.parcelAt(storeRow));
+            if (row != null) {
+                fireTableRowsUpdated(row, row);
+            }
+        }
+    }
+
+    private BitSet takeDirtyRows() {
+        synchronized (dirtyLock) {
+            BitSet taken = dirtyRows;
+            dirtyRows = new BitSet();
+            return taken;
+        }
+    }
+}
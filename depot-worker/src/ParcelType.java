@@ -0,0 +1,60 @@
+// Registry of parcel types. Ordinals double as type codes in the tariff
+// kernels and snapshots, so new types go at the end.
+enum ParcelType {
+    STANDARD("Standard"),
+    FRAGILE("Fragile"),
+    PERISHABLE("Perishable");
+
+    private static final ParcelType[] VALUES = values();
+
+    private final String displayName;
+
+    ParcelType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    // Case-insensitive lookup by display name; null if the name is unknown.
+    public static ParcelType fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (ParcelType type : VALUES) {
+            if (type.displayName.equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    public static ParcelType fromCode(int code) {
+        return VALUES[code];
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+
+    public static String[] displayNames() {
+        String[] names = new String[VALUES.length];
+        for (int i = 0; i < VALUES.length; i++) {
+            names[i] = VALUES[i].displayName;
+        }
+        return names;
+    }
+
+    // "Standard, Fragile, or Perishable", for error messages.
+    static String describeAll() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < VALUES.length; i++) {
+            if (i > 0) {
+                text.append(i == VALUES.length - 1 ? ", or " : ", ");
+            }
+            text.append(VALUES[i].displayName);
+        }
+        return text.toString();
+    }
+}
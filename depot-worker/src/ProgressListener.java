@@ -0,0 +1,16 @@
+// Receives progress from long-running Manager operations. Called on the
+// thread doing the work, so implementations must be cheap and thread-safe;
+// anything that touches Swing has to hand off to the EDT itself. total is -1
+// when the amount of work is not known up front.
+//
+// Operations that can stop early poll isCancelled between units of work and
+// keep whatever they have already done.
+interface ProgressListener {
+    ProgressListener NONE = (done, total, message) -> { };
+
+    void progress(long done, long total, String message);
+
+    default boolean isCancelled() {
+        return false;
+    }
+}
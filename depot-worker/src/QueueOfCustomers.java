@@ -4,19 +4,69 @@ import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+// Bounded FIFO queue of customers backed by an intrusive doubly linked list
+// plus an id -> node index, so lookups and removals by ID never walk the
+// queue. Safe for many producers and consumers: one lock guards the list and
+// index, and producers that find the queue full can wait for room (put,
+// offer with a timeout) instead of being turned away. Depth and time spent
+// blocked are tracked for monitoring.
 class QueueOfCustomers {
-    private Queue<Customer> customerQueue;
     private static final int MAX_QUEUE_SIZE = 100;
+    // Shared by every queue in the process; the per-queue figures below stay
+    // with the queue.
+    private static final LongAdder ENQUEUED = Metrics.getInstance().counter("queue.enqueued");
+    private static final LongAdder DEQUEUED = Metrics.getInstance().counter("queue.dequeued");
+    private static final LongAdder REJECTED = Metrics.getInstance().counter("queue.rejected");
+    private static final Metrics.Histogram TIME_IN_QUEUE = Metrics.getInstance().histogram("queue.timeInQueue");
+    // Published with the lock held, so events come in queue order.
+    private static final ChangeEventBus EVENTS = ChangeEventBus.getInstance();
+
+    private static final class Node {
+        final Customer customer;
+        final long enqueuedNanos = System.nanoTime();
+        Node prev;
+        Node next;
+
+        Node(Customer customer) {
+            this.customer = customer;
+        }
+    }
+
+    private final Map<String, Node> index;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private Node head;
+    private Node tail;
+
+    private volatile int peakDepth;
+    private final LongAdder producerBlockedNanos = new LongAdder();
+    private final LongAdder consumerBlockedNanos = new LongAdder();
+    private final LongAdder rejectedWhenFull = new LongAdder();
 
     public QueueOfCustomers() {
-        customerQueue = new LinkedList<>();
+        this(MAX_QUEUE_SIZE);
+    }
+
+    public QueueOfCustomers(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        index = new HashMap<>();
     }
     public void saveToFile(String filename) throws IOException {
         try (PrintWriter writer = new PrintWriter(new FileWriter("data/" + filename))) {
-            for (Customer customer : customerQueue) {
+            for (Customer customer : getCustomers()) {
                 writer.printf("%s,%s,%s%n",
                     customer.getId(),
                     customer.getName(),
@@ -26,40 +76,357 @@ class QueueOfCustomers {
     }
 
     public void loadFromFile(String filename) throws IOException, ValidationException {
-        customerQueue.clear();
+        clear();
         Path path = Paths.get("data", filename);
         List<String> lines = Files.readAllLines(path);
         for (String line : lines) {
             String[] parts = line.split(",");
-            if (parts.length >= 2) {
-                Customer customer = new Customer(parts[0], parts[1]);
-                addCustomer(customer);
+            if (parts.length >= 3) {
+                LocalDateTime joinTime = LocalDateTime.parse(parts[2], DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+                addCustomer(new Customer(parts[0], parts[1], joinTime));
+            } else if (parts.length == 2) {
+                addCustomer(new Customer(parts[0], parts[1]));
             }
         }
     }
+    // Adds without waiting; a full queue is reported as an error.
     public void addCustomer(Customer customer) throws ValidationException {
-        if (customer == null) {
-            throw new ValidationException("Customer cannot be null");
+        checkNotNull(customer);
+        lock.lock();
+        try {
+            if (index.size() >= capacity) {
+                rejectedWhenFull.increment();
+                REJECTED.increment();
+                throw new ValidationException("Queue has reached maximum capacity");
+            }
+            insert(customer);
+        } finally {
+            lock.unlock();
         }
-        if (customerQueue.size() >= MAX_QUEUE_SIZE) {
-            throw new ValidationException("Queue has reached maximum capacity");
+    }
+
+    // Throws the error addCustomer would, without adding anything. For
+    // callers that must record the add (e.g. journal it) before making it.
+    void checkCanAdd(Customer customer) throws ValidationException {
+        checkNotNull(customer);
+        lock.lock();
+        try {
+            if (index.size() >= capacity) {
+                rejectedWhenFull.increment();
+                REJECTED.increment();
+                throw new ValidationException("Queue has reached maximum capacity");
+            }
+            checkNotQueued(customer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits as long as it takes for room in the queue.
+    public void put(Customer customer) throws ValidationException, InterruptedException {
+        checkNotNull(customer);
+        lock.lockInterruptibly();
+        try {
+            checkNotQueued(customer);
+            if (index.size() >= capacity) {
+                long start = System.nanoTime();
+                try {
+                    while (index.size() >= capacity) {
+                        notFull.await();
+                    }
+                } finally {
+                    producerBlockedNanos.add(System.nanoTime() - start);
+                }
+            }
+            insert(customer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits up to the timeout for room; returns false if the queue stayed full.
+    public boolean offer(Customer customer, long timeout, TimeUnit unit)
+            throws ValidationException, InterruptedException {
+        checkNotNull(customer);
+        lock.lockInterruptibly();
+        try {
+            checkNotQueued(customer);
+            if (!awaitNotFull(unit.toNanos(timeout))) {
+                rejectedWhenFull.increment();
+                REJECTED.increment();
+                return false;
+            }
+            insert(customer);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits up to the timeout for room without adding anything. Callers that
+    // must pair the insert with other work under their own lock wait here
+    // first and then retry addCustomer.
+    public boolean awaitCapacity(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            boolean room = awaitNotFull(unit.toNanos(timeout));
+            if (room) {
+                // unlink wakes a single waiter. This one takes no place, so
+                // pass the wakeup on rather than leave a blocked put waiting
+                // while there is room.
+                notFull.signal();
+            }
+            return room;
+        } finally {
+            lock.unlock();
         }
-        customerQueue.offer(customer);
     }
 
     public Customer removeCustomer() {
-        return customerQueue.poll();
+        lock.lock();
+        try {
+            return head == null ? null : unlinkHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits as long as it takes for a customer.
+    public Customer take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (head == null) {
+                long start = System.nanoTime();
+                try {
+                    while (head == null) {
+                        notEmpty.await();
+                    }
+                } finally {
+                    consumerBlockedNanos.add(System.nanoTime() - start);
+                }
+            }
+            return unlinkHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits up to the timeout for a customer; returns null if none arrived.
+    public Customer poll(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            long nanos = unit.toNanos(timeout);
+            if (head == null && nanos > 0) {
+                long start = System.nanoTime();
+                try {
+                    while (head == null && nanos > 0) {
+                        nanos = notEmpty.awaitNanos(nanos);
+                    }
+                } finally {
+                    consumerBlockedNanos.add(System.nanoTime() - start);
+                }
+            }
+            return head == null ? null : unlinkHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Moves up to maxCustomers from the front of the queue into sink, in
+    // order, under a single lock acquisition. Returns how many were moved.
+    public int drainTo(Collection<? super Customer> sink, int maxCustomers) {
+        lock.lock();
+        try {
+            int moved = 0;
+            while (head != null && moved < maxCustomers) {
+                sink.add(unlinkHead());
+                moved++;
+            }
+            return moved;
+        } finally {
+            lock.unlock();
+        }
     }
 
     public Customer peekCustomer() {
-        return customerQueue.peek();
+        lock.lock();
+        try {
+            return head == null ? null : head.customer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Customer findById(String customerId) {
+        lock.lock();
+        try {
+            Node node = index.get(customerId);
+            return node == null ? null : node.customer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Removes a customer from anywhere in the line, e.g. when they leave early.
+    public Customer removeById(String customerId) {
+        lock.lock();
+        try {
+            Node node = index.get(customerId);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            EVENTS.customerRemoved(this, node.customer);
+            return node.customer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<Customer> getCustomers() {
+        lock.lock();
+        try {
+            List<Customer> customers = new ArrayList<>(index.size());
+            for (Node node = head; node != null; node = node.next) {
+                customers.add(node.customer);
+            }
+            return customers;
+        } finally {
+            lock.unlock();
+        }
     }
 
     public boolean isEmpty() {
-        return customerQueue.isEmpty();
+        lock.lock();
+        try {
+            return head == null;
+        } finally {
+            lock.unlock();
+        }
     }
 
     public int size() {
-        return customerQueue.size();
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Largest depth seen since the queue was created.
+    public int getPeakDepth() {
+        return peakDepth;
+    }
+
+    // Total time producers have spent waiting for room in put and offer.
+    public long getProducerBlockedNanos() {
+        return producerBlockedNanos.sum();
+    }
+
+    // Total time consumers have spent waiting for customers in take and poll.
+    public long getConsumerBlockedNanos() {
+        return consumerBlockedNanos.sum();
+    }
+
+    // Adds refused because the queue was full (or stayed full until timeout).
+    public long getRejectedCount() {
+        return rejectedWhenFull.sum();
+    }
+
+    private static void checkNotNull(Customer customer) throws ValidationException {
+        if (customer == null) {
+            throw new ValidationException("Customer cannot be null");
+        }
+    }
+
+    private void checkNotQueued(Customer customer) throws ValidationException {
+        if (index.containsKey(customer.getId())) {
+            throw new ValidationException("Customer " + customer.getId() + " is already in the queue");
+        }
+    }
+
+    // Called with the lock held; returns false if the queue is still full
+    // when the timeout runs out.
+    private boolean awaitNotFull(long nanos) throws InterruptedException {
+        if (index.size() < capacity) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            while (index.size() >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            producerBlockedNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    // Called with the lock held and room in the queue.
+    private void insert(Customer customer) throws ValidationException {
+        checkNotQueued(customer);
+        Node node = new Node(customer);
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+            node.prev = tail;
+        }
+        tail = node;
+        index.put(customer.getId(), node);
+        if (index.size() > peakDepth) {
+            peakDepth = index.size();
+        }
+        ENQUEUED.increment();
+        EVENTS.customerEnqueued(this, customer);
+        notEmpty.signal();
+    }
+
+    // Every path that serves a customer ends here; removeById (a customer
+    // leaving early) does not count as served.
+    private Customer unlinkHead() {
+        Node node = head;
+        unlink(node);
+        DEQUEUED.increment();
+        TIME_IN_QUEUE.recordSince(node.enqueuedNanos);
+        EVENTS.customerDequeued(this, node.customer);
+        return node.customer;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        index.remove(node.customer.getId());
+        notFull.signal();
+    }
+
+    private void clear() {
+        lock.lock();
+        try {
+            head = null;
+            tail = null;
+            index.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 }
@@ -0,0 +1,177 @@
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Layout of a shift report. ReportWriter calls header once, then customer
+// and parcel for every customer in queue order, then footer with the totals
+// gathered along the way. Formats only append to the writer, so adding one
+// means implementing these four methods.
+interface ReportFormat {
+    ReportFormat TEXT = new Text();
+    ReportFormat CSV = new Csv();
+    ReportFormat JSON_LINES = new JsonLines();
+
+    void header(ReportWriter out, LocalDateTime generated);
+
+    void customer(ReportWriter out, Customer customer);
+
+    // error is null for a parcel that was processed, otherwise the reason
+    // it was not.
+    void parcel(ReportWriter out, Customer customer, Parcel parcel, String error);
+
+    void footer(ReportWriter out, ReportSummary summary);
+
+    // .csv and .jsonl pick those formats; anything else gets the text layout.
+    static ReportFormat forFilename(String filename) {
+        String name = filename.toLowerCase();
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".jsonl")) {
+            return JSON_LINES;
+        }
+        return TEXT;
+    }
+
+    // The original human-readable report, with a summary before the end line.
+    final class Text implements ReportFormat {
+        @Override
+        public void header(ReportWriter out, LocalDateTime generated) {
+            out.append("Parcel Processing Report").newLine();
+            out.append("Generated: ").append(generated.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).newLine();
+            out.append("----------------------------------------").newLine();
+        }
+
+        @Override
+        public void customer(ReportWriter out, Customer customer) {
+            out.newLine();
+            out.append("Processing customer: ").append(customer.getName())
+                .append(" (").append(customer.getId()).append(')').newLine();
+        }
+
+        @Override
+        public void parcel(ReportWriter out, Customer customer, Parcel parcel, String error) {
+            if (error == null) {
+                out.append("Processed parcel ").append(parcel.getId()).append(": Fee=").appendFixed2(parcel.getFee())
+                    .append(", Status=").append(parcel.getStatus().name()).newLine();
+            } else {
+                out.append("Error processing parcel ").append(parcel.getId()).append(": ").append(error).newLine();
+            }
+        }
+
+        @Override
+        public void footer(ReportWriter out, ReportSummary summary) {
+            out.newLine();
+            out.append("Summary").newLine();
+            out.append("Customers: ").append(summary.getCustomers())
+                .append(", parcels: ").append(summary.getParcels())
+                .append(", errors: ").append(summary.getErrors()).newLine();
+            for (ParcelType type : ParcelType.values()) {
+                out.append(type.getDisplayName()).append(": ").append(summary.getParcels(type))
+                    .append(" parcels, ").appendFixed2(summary.getWeight(type))
+                    .append(" kg, $").appendFixed2(summary.getFees(type)).newLine();
+            }
+            for (ParcelStatus status : ParcelStatus.values()) {
+                out.append(status.name()).append(": ").append(summary.getParcels(status)).newLine();
+            }
+            out.append("Total fees: $").appendFixed2(summary.getTotalFees()).newLine();
+            out.newLine();
+            out.append("End of Report").newLine();
+        }
+    }
+
+    // One row per parcel. The first column says what a row is, so the
+    // totals can follow the parcels in the same file: "parcel", then
+    // "type" and "status" subtotals and a final "total".
+    final class Csv implements ReportFormat {
+        @Override
+        public void header(ReportWriter out, LocalDateTime generated) {
+            out.append("record,customer_id,customer_name,parcel_id,type,status,parcels,weight,fee,error").newLine();
+        }
+
+        @Override
+        public void customer(ReportWriter out, Customer customer) {
+            // Customers only appear in their parcels' rows.
+        }
+
+        @Override
+        public void parcel(ReportWriter out, Customer customer, Parcel parcel, String error) {
+            out.append("parcel,").appendCsv(customer.getId()).append(',').appendCsv(customer.getName())
+                .append(',').appendCsv(parcel.getId()).append(',').append(parcel.getType())
+                .append(',').append(parcel.getStatus().name()).append(",1,")
+                .append(parcel.getWeight()).append(',').appendFixed2(parcel.getFee()).append(',');
+            if (error != null) {
+                out.appendCsv(error);
+            }
+            out.newLine();
+        }
+
+        @Override
+        public void footer(ReportWriter out, ReportSummary summary) {
+            for (ParcelType type : ParcelType.values()) {
+                out.append("type,,,,").append(type.getDisplayName()).append(",,").append(summary.getParcels(type))
+                    .append(',').appendFixed2(summary.getWeight(type))
+                    .append(',').appendFixed2(summary.getFees(type)).append(',').newLine();
+            }
+            for (ParcelStatus status : ParcelStatus.values()) {
+                out.append("status,,,,,").append(status.name()).append(',').append(summary.getParcels(status))
+                    .append(",,,").newLine();
+            }
+            out.append("total,,,,,,").append(summary.getParcels()).append(",,")
+                .appendFixed2(summary.getTotalFees()).append(',').append(summary.getErrors())
+                .newLine();
+        }
+    }
+
+    // One JSON object per line, told apart by their "record" field.
+    final class JsonLines implements ReportFormat {
+        @Override
+        public void header(ReportWriter out, LocalDateTime generated) {
+            out.append("{\"record\":\"header\",\"generated\":")
+                .appendJson(generated.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append('}').newLine();
+        }
+
+        @Override
+        public void customer(ReportWriter out, Customer customer) {
+            out.append("{\"record\":\"customer\",\"id\":").appendJson(customer.getId())
+                .append(",\"name\":").appendJson(customer.getName())
+                .append(",\"parcels\":").append(customer.getParcels().size()).append('}').newLine();
+        }
+
+        @Override
+        public void parcel(ReportWriter out, Customer customer, Parcel parcel, String error) {
+            out.append("{\"record\":\"parcel\",\"customer\":").appendJson(customer.getId())
+                .append(",\"id\":").appendJson(parcel.getId())
+                .append(",\"type\":").appendJson(parcel.getType())
+                .append(",\"weight\":").append(parcel.getWeight())
+                .append(",\"fee\":").appendFixed2(parcel.getFee())
+                .append(",\"status\":").appendJson(parcel.getStatus().name());
+            if (error != null) {
+                out.append(",\"error\":").appendJson(error);
+            }
+            out.append('}').newLine();
+        }
+
+        @Override
+        public void footer(ReportWriter out, ReportSummary summary) {
+            out.append("{\"record\":\"summary\",\"customers\":").append(summary.getCustomers())
+                .append(",\"parcels\":").append(summary.getParcels())
+                .append(",\"errors\":").append(summary.getErrors())
+                .append(",\"fees\":").appendFixed2(summary.getTotalFees())
+                .append(",\"byType\":{");
+            ParcelType[] types = ParcelType.values();
+            for (int i = 0; i < types.length; i++) {
+                out.append(i == 0 ? "" : ",").appendJson(types[i].getDisplayName())
+                    .append(":{\"parcels\":").append(summary.getParcels(types[i]))
+                    .append(",\"weight\":").appendFixed2(summary.getWeight(types[i]))
+                    .append(",\"fees\":").appendFixed2(summary.getFees(types[i])).append('}');
+            }
+            out.append("},\"byStatus\":{");
+            ParcelStatus[] statuses = ParcelStatus.values();
+            for (int i = 0; i < statuses.length; i++) {
+                out.append(i == 0 ? "" : ",").appendJson(statuses[i].name())
+                    .append(':').append(summary.getParcels(statuses[i]));
+            }
+            out.append("}}").newLine();
+        }
+    }
+}
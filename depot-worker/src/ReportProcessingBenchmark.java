@@ -0,0 +1,54 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares the serial report path (parallelism 1) with the fork/join path.
+// Usage: java ReportProcessingBenchmark [customers] [parcelsPerCustomer] [rounds]
+class ReportProcessingBenchmark {
+    private static final String[] TYPES = ParcelType.displayNames();
+
+    public static void main(String[] args) throws ValidationException {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int parcelsPerCustomer = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Warm up both paths so the JIT has compiled the hot loops before timing.
+        run(1, customers, parcelsPerCustomer, rounds);
+        run(cores, customers, parcelsPerCustomer, rounds);
+
+        double serialMs = run(1, customers, parcelsPerCustomer, rounds);
+        System.out.printf("parallelism=%d: %.2f ms/round%n", 1, serialMs);
+        for (int parallelism = 2; parallelism <= cores; parallelism *= 2) {
+            double parallelMs = run(parallelism, customers, parcelsPerCustomer, rounds);
+            System.out.printf("parallelism=%d: %.2f ms/round (speedup %.2fx)%n",
+                parallelism, parallelMs, serialMs / parallelMs);
+        }
+    }
+
+    private static double run(int parallelism, int customers, int parcelsPerCustomer, int rounds)
+            throws ValidationException {
+        ParallelCustomerProcessor processor = new ParallelCustomerProcessor(new Worker(), parallelism);
+        ReportWriter sink = ReportWriter.discarding();
+        long totalNanos = 0;
+        for (int round = 0; round < rounds; round++) {
+            List<Customer> batch = createCustomers(customers, parcelsPerCustomer);
+            long start = System.nanoTime();
+            processor.process(batch, sink, ProgressListener.NONE);
+            totalNanos += System.nanoTime() - start;
+        }
+        return totalNanos / 1_000_000.0 / rounds;
+    }
+
+    private static List<Customer> createCustomers(int count, int parcelsPerCustomer) throws ValidationException {
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Customer customer = new Customer(String.format("C%03d", i % 1000), "Customer " + i);
+            for (int j = 0; j < parcelsPerCustomer; j++) {
+                int n = i * parcelsPerCustomer + j;
+                customer.addParcel(new Parcel(String.format("P%03d", n % 1000), 1 + n % 90, TYPES[n % 3]));
+            }
+            customers.add(customer);
+        }
+        return customers;
+    }
+}
@@ -0,0 +1,67 @@
+// Totals for one report, accumulated by ReportWriter as customers are
+// written, so the footer needs no second pass over the parcels.
+final class ReportSummary {
+    private static final ParcelStatus[] STATUSES = ParcelStatus.values();
+
+    private final long[] parcelsByType = new long[ParcelType.count()];
+    private final double[] weightByType = new double[ParcelType.count()];
+    private final double[] feesByType = new double[ParcelType.count()];
+    private final long[] parcelsByStatus = new long[STATUSES.length];
+    private long customers;
+    private long errors;
+
+    void addCustomer() {
+        customers++;
+    }
+
+    void addParcel(Parcel parcel, boolean failed) {
+        int type = parcel.getParcelType().ordinal();
+        parcelsByType[type]++;
+        weightByType[type] += parcel.getWeight();
+        feesByType[type] += parcel.getFee();
+        parcelsByStatus[parcel.getStatus().ordinal()]++;
+        if (failed) {
+            errors++;
+        }
+    }
+
+    public long getCustomers() {
+        return customers;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getParcels() {
+        long total = 0;
+        for (long count : parcelsByType) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getParcels(ParcelType type) {
+        return parcelsByType[type.ordinal()];
+    }
+
+    public long getParcels(ParcelStatus status) {
+        return parcelsByStatus[status.ordinal()];
+    }
+
+    public double getWeight(ParcelType type) {
+        return weightByType[type.ordinal()];
+    }
+
+    public double getFees(ParcelType type) {
+        return feesByType[type.ordinal()];
+    }
+
+    public double getTotalFees() {
+        double total = 0;
+        for (double fees : feesByType) {
+            total += fees;
+        }
+        return total;
+    }
+}
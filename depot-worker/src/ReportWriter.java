@@ -0,0 +1,254 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Streams a shift report to a file through one FileChannel and a fixed
+// 1 MiB buffer, so memory use does not grow with the report. Text is built
+// in a small char buffer and encoded to UTF-8 a chunk at a time; numbers are
+// appended directly rather than through java.util.Formatter. The
+// ReportSummary for the footer is accumulated while customers are written.
+//
+// Like PrintWriter, writing never throws: the first I/O error is kept, later
+// output is dropped and close() rethrows it. Processing therefore always
+// runs to the end, which keeps the journal's PROCESS_ALL_CUSTOMERS record
+// true even when the report cannot be written.
+final class ReportWriter implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int CHUNK_CHARS = 8192;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    // Below this many cents a double is exact to well under TIE_WINDOW.
+    private static final double MAX_FAST_CENTS = 1e12;
+    private static final double TIE_WINDOW = 1e-3;
+
+    private final FileChannel channel; // null discards the output
+    private final ReportFormat format;
+    private final ReportSummary summary = new ReportSummary();
+    private final StringBuilder chars = new StringBuilder(CHUNK_CHARS + 256);
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private IOException failure;
+
+    public ReportWriter(Path file, ReportFormat format) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING), format);
+    }
+
+    private ReportWriter(FileChannel channel, ReportFormat format) {
+        this.channel = channel;
+        this.format = format;
+        this.bytes = channel == null ? null : ByteBuffer.allocateDirect(BUFFER_BYTES);
+    }
+
+    // Runs the report logic without producing a file, e.g. for journal replay.
+    static ReportWriter discarding() {
+        return new ReportWriter((FileChannel) null, ReportFormat.TEXT);
+    }
+
+    public void begin(LocalDateTime generated) {
+        format.header(this, generated);
+    }
+
+    // errors is null when every parcel was processed; otherwise errors[i] is
+    // the reason parcel i was not, or null for one that was.
+    public void customer(Customer customer, String[] errors) {
+        summary.addCustomer();
+        format.customer(this, customer);
+        List<Parcel> parcels = customer.getParcels();
+        for (int i = 0; i < parcels.size(); i++) {
+            String error = errors == null ? null : errors[i];
+            summary.addParcel(parcels.get(i), error != null);
+            format.parcel(this, customer, parcels.get(i), error);
+        }
+    }
+
+    public void finish() {
+        format.footer(this, summary);
+    }
+
+    public ReportSummary getSummary() {
+        return summary;
+    }
+
+    public ReportWriter append(String text) {
+        chars.append(text);
+        return this;
+    }
+
+    public ReportWriter append(char c) {
+        chars.append(c);
+        return this;
+    }
+
+    public ReportWriter append(long value) {
+        chars.append(value);
+        return this;
+    }
+
+    public ReportWriter append(double value) {
+        chars.append(value);
+        return this;
+    }
+
+    // Two decimal places, rounded half up like "%.2f": ties are decided on the
+    // decimal value Double.toString shows, so 1.005 gives 1.01. Math.round on
+    // value * 100 agrees except near a tie, where the binary product can land
+    // either side of it, or past the range of a long; those values go through
+    // BigDecimal.
+    public ReportWriter appendFixed2(double value) {
+        if (!Double.isFinite(value)) {
+            chars.append(value);
+            return this;
+        }
+        double scaled = Math.abs(value) * 100;
+        if (scaled >= MAX_FAST_CENTS || Math.abs(scaled - Math.floor(scaled) - 0.5) < TIE_WINDOW) {
+            chars.append(BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).toPlainString());
+            return this;
+        }
+        long cents = Math.round(scaled);
+        if (value < 0 && cents != 0) {
+            chars.append('-');
+        }
+        chars.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            chars.append('0');
+        }
+        chars.append(fraction);
+        return this;
+    }
+
+    // A CSV field, quoted only when it has to be.
+    public ReportWriter appendCsv(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            chars.append(field);
+            return this;
+        }
+        chars.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                chars.append('"');
+            }
+            chars.append(c);
+        }
+        chars.append('"');
+        return this;
+    }
+
+    // A quoted JSON string.
+    public ReportWriter appendJson(String text) {
+        chars.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> chars.append("\\\"");
+                case '\\' -> chars.append("\\\\");
+                case '\n' -> chars.append("\\n");
+                case '\r' -> chars.append("\\r");
+                case '\t' -> chars.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        chars.append("\\u00");
+                        chars.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        chars.append(c);
+                    }
+                }
+            }
+        }
+        chars.append('"');
+        return this;
+    }
+
+    // Ends the line; the char buffer is encoded once it passes CHUNK_CHARS.
+    public ReportWriter newLine() {
+        chars.append(LINE_SEPARATOR);
+        if (chars.length() >= CHUNK_CHARS) {
+            encode(false);
+        }
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            encode(true);
+            flushEncoder();
+            writeBytes();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void encode(boolean endOfInput) {
+        if (channel == null || failure != null) {
+            chars.setLength(0);
+            return;
+        }
+        CharBuffer in = CharBuffer.wrap(chars);
+        while (true) {
+            CoderResult result = encoder.encode(in, bytes, endOfInput);
+            if (!result.isOverflow()) {
+                break;
+            }
+            writeBytes();
+            if (failure != null) {
+                chars.setLength(0);
+                return;
+            }
+        }
+        // A high surrogate at the end waits for its pair in the next chunk.
+        chars.delete(0, in.position());
+    }
+
+    private void flushEncoder() {
+        if (failure != null) {
+            return;
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            writeBytes();
+        }
+    }
+
+    private void writeBytes() {
+        if (failure != null) {
+            bytes.clear();
+            return;
+        }
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        bytes.clear();
+    }
+}
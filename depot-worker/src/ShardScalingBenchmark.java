@@ -0,0 +1,101 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+// Throughput of DepotShards as the shard count grows. Each round starts from
+// a fresh depot; client threads (two per shard) add 1000 parcels and 50
+// customers per shard, assign every parcel to a customer (most of them
+// across shards) and then every shard serves its queue. Only the calls are
+// timed, not building the depot. Scaling is bounded by the cores available:
+// with fewer cores than shards the extra shards only add hand-offs.
+// Usage: java ShardScalingBenchmark [maxShards] [rounds]
+class ShardScalingBenchmark {
+    private static final int PARCELS = 1000;
+    private static final int CUSTOMERS_PER_SHARD = 50;
+    private static final int CLIENTS_PER_SHARD = 2;
+
+    public static void main(String[] args) throws Exception {
+        int maxShards = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        System.out.printf("%d cores, %d rounds%n", Runtime.getRuntime().availableProcessors(), rounds);
+        System.out.printf("%-8s %8s %12s %10s %10s%n", "shards", "clients", "ops/s", "rejected", "speedup");
+        double baseline = 0;
+        for (int shards = 1; shards <= maxShards; shards *= 2) {
+            run(shards, Math.max(1, rounds / 5), null); // warm-up
+            LongAdder rejected = new LongAdder();
+            double opsPerSecond = run(shards, rounds, rejected);
+            if (shards == 1) {
+                baseline = opsPerSecond;
+            }
+            System.out.printf("%-8d %8d %12.0f %10d %9.2fx%n", shards, shards * CLIENTS_PER_SHARD,
+                opsPerSecond, rejected.sum(), opsPerSecond / baseline);
+        }
+        Log.getInstance().close();
+    }
+
+    // Returns calls per second over all rounds.
+    private static double run(int shardCount, int rounds, LongAdder rejected) throws Exception {
+        int clients = shardCount * CLIENTS_PER_SHARD;
+        int customers = Math.min(1000, shardCount * CUSTOMERS_PER_SHARD);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long ops = 0;
+        long nanos = 0;
+        try {
+            for (int round = 0; round < rounds; round++) {
+                try (DepotShards depot = new DepotShards(shardCount)) {
+                    long start = System.nanoTime();
+                    long errors = inParallel(pool, clients, PARCELS, i ->
+                        depot.processParcelLine(String.format("P%03d,%d,Standard", i, 1 + i % 50)));
+                    errors += inParallel(pool, clients, customers, i ->
+                        depot.processCustomerLine(String.format("C%03d,Customer %d", i, i)));
+                    errors += inParallel(pool, clients, PARCELS, i -> {
+                        try {
+                            depot.assignParcel(String.format("C%03d", i % customers), String.format("P%03d", i));
+                            return null;
+                        } catch (ValidationException e) {
+                            return e.getMessage();
+                        }
+                    });
+                    depot.processAllCustomers();
+                    nanos += System.nanoTime() - start;
+                    ops += 2L * PARCELS + customers + 1;
+                    if (rejected != null) {
+                        rejected.add(errors);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return ops / (nanos / 1e9);
+    }
+
+    private interface Call {
+        String run(int i);
+    }
+
+    // Splits 0..count-1 over the clients; returns how many calls failed.
+    private static long inParallel(ExecutorService pool, int clients, int count, Call call) throws Exception {
+        List<Future<Long>> results = new ArrayList<>(clients);
+        for (int client = 0; client < clients; client++) {
+            int first = client;
+            results.add(pool.submit(() -> {
+                long failed = 0;
+                for (int i = first; i < count; i += clients) {
+                    if (call.run(i) != null) {
+                        failed++;
+                    }
+                }
+                return failed;
+            }));
+        }
+        long failed = 0;
+        for (Future<Long> result : results) {
+            failed += result.get();
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.Arrays;
+
+// Immutable pricing table. Every rule reduces to fee = fixed + perKg * weight,
+// with the coefficients stored in arrays indexed by ParcelType ordinal, so
+// pricing a parcel is two array loads and a multiply-add.
+final class Tariff {
+    // The fee schedule Worker has always charged: a $10 base fee, $0.50/kg,
+    // and a $5 (fragile) or $7 (perishable) surcharge.
+    static final Tariff DEFAULT = new Tariff(
+        new double[]{10.0, 15.0, 17.0},
+        new double[]{0.5, 0.5, 0.5});
+
+    // Batches are priced with the Vector API when the JVM was started with
+    // --add-modules jdk.incubator.vector and has vector hardware to use;
+    // -Ddepot.vectorFees=false forces the scalar loop, e.g. to compare them.
+    private static final boolean VECTOR_FEES = vectorFeesAvailable();
+
+    private final double[] fixed;
+    private final double[] perKg;
+
+    Tariff(double[] fixed, double[] perKg) {
+        if (fixed.length != ParcelType.count() || perKg.length != ParcelType.count()) {
+            throw new IllegalArgumentException("Tariff needs one rate per parcel type");
+        }
+        this.fixed = Arrays.copyOf(fixed, fixed.length);
+        this.perKg = Arrays.copyOf(perKg, perKg.length);
+    }
+
+    public double feeFor(ParcelType type, double weight) {
+        int code = type.ordinal();
+        return fixed[code] + perKg[code] * weight;
+    }
+
+    // Prices count parcels held in parallel arrays, where typeCodes are
+    // ParcelType ordinals. The ceiling check is folded into the same loop as a
+    // flag update rather than a branch, so the loop body stays straight-line
+    // code. Returns the index of the first fee above maxFee, or -1 if none is.
+    public int feesFor(double[] weights, byte[] typeCodes, double[] fees, int count, double maxFee) {
+        if (VECTOR_FEES) {
+            return VectorFees.feesFor(fixed, perKg, weights, typeCodes, fees, count, maxFee);
+        }
+        double[] fixed = this.fixed;
+        double[] perKg = this.perKg;
+        int over = 0;
+        for (int i = 0; i < count; i++) {
+            int code = typeCodes[i];
+            double fee = fixed[code] + perKg[code] * weights[i];
+            fees[i] = fee;
+            over |= fee > maxFee ? 1 : 0;
+        }
+        if (over == 0) {
+            return -1;
+        }
+        for (int i = 0; i < count; i++) {
+            if (fees[i] > maxFee) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Looks for the module before VectorFees is loaded, since loading it
+    // without the module fails.
+    private static boolean vectorFeesAvailable() {
+        if (!Boolean.parseBoolean(System.getProperty("depot.vectorFees", "true"))) {
+            return false;
+        }
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() && VectorFees.isUseful();
+    }
+
+    public double getFixed(ParcelType type) {
+        return fixed[type.ordinal()];
+    }
+
+    public double getPerKg(ParcelType type) {
+        return perKg[type.ordinal()];
+    }
+
+    // Type, fixed and per-kg rate for each type, as written to the journal.
+    // Double.toString reads back to the same value, so a replayed tariff
+    // charges exactly the fees that were charged.
+    String[] toFields() {
+        ParcelType[] types = ParcelType.values();
+        String[] fields = new String[types.length * 3];
+        for (ParcelType type : types) {
+            int i = type.ordinal() * 3;
+            fields[i] = type.getDisplayName();
+            fields[i + 1] = Double.toString(fixed[type.ordinal()]);
+            fields[i + 2] = Double.toString(perKg[type.ordinal()]);
+        }
+        return fields;
+    }
+
+    static Tariff fromFields(String[] fields) throws ValidationException {
+        double[] fixed = new double[ParcelType.count()];
+        double[] perKg = new double[ParcelType.count()];
+        boolean[] seen = new boolean[ParcelType.count()];
+        for (int i = 0; i + 2 < fields.length; i += 3) {
+            ParcelType type = ParcelType.fromName(fields[i]);
+            if (type == null) {
+                throw new ValidationException("Unknown parcel type in tariff: " + fields[i]);
+            }
+            try {
+                fixed[type.ordinal()] = Double.parseDouble(fields[i + 1]);
+                perKg[type.ordinal()] = Double.parseDouble(fields[i + 2]);
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Invalid rate in tariff for " + fields[i]);
+            }
+            seen[type.ordinal()] = true;
+        }
+        for (ParcelType type : ParcelType.values()) {
+            if (!seen[type.ordinal()]) {
+                throw new ValidationException("Tariff has no rule for " + type.getDisplayName());
+            }
+        }
+        return new Tariff(fixed, perKg);
+    }
+}
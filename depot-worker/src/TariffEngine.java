@@ -0,0 +1,75 @@
+import java.util.List;
+
+// Holds the active Tariff. Readers take a plain volatile read on every fee
+// calculation; a reload (Manager.reloadTariffs, which journals it first)
+// builds a complete new Tariff and swaps the reference, so pricing never locks
+// and never sees a half-updated table.
+//
+// Rule file format, one line per parcel type (blank lines and # comments are
+// ignored):  Type,baseFee,perKgRate,surcharge
+final class TariffEngine {
+    static final String DEFAULT_TARIFF_FILE = "tariffs.txt";
+
+    private static volatile Tariff current = Tariff.DEFAULT;
+
+    private TariffEngine() {
+    }
+
+    public static Tariff current() {
+        return current;
+    }
+
+    public static void install(Tariff tariff) {
+        current = tariff;
+    }
+
+    static Tariff parse(List<String> lines) throws ValidationException {
+        int types = ParcelType.count();
+        double[] fixed = new double[types];
+        double[] perKg = new double[types];
+        boolean[] seen = new boolean[types];
+        int lineNumber = 0;
+        for (String line : lines) {
+            lineNumber++;
+            if (Validation.isBlank(line) || line.trim().startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            if (parts.length != 4) {
+                throw new ValidationException("Tariff line " + lineNumber
+                    + ": expected Type,baseFee,perKgRate,surcharge");
+            }
+            ParcelType type = ParcelType.fromName(parts[0].trim());
+            if (type == null) {
+                throw new ValidationException("Tariff line " + lineNumber + ": unknown parcel type " + parts[0].trim());
+            }
+            double base = parseRate(parts[1], lineNumber);
+            double rate = parseRate(parts[2], lineNumber);
+            double surcharge = parseRate(parts[3], lineNumber);
+            fixed[type.ordinal()] = base + surcharge;
+            perKg[type.ordinal()] = rate;
+            seen[type.ordinal()] = true;
+        }
+        for (ParcelType type : ParcelType.values()) {
+            if (!seen[type.ordinal()]) {
+                throw new ValidationException("Tariff has no rule for " + type.getDisplayName());
+            }
+        }
+        return new Tariff(fixed, perKg);
+    }
+
+    // Rates are money, so unlike weights they may be zero but never negative,
+    // NaN or infinite.
+    private static double parseRate(String text, int lineNumber) throws ValidationException {
+        double rate;
+        try {
+            rate = Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            rate = Double.NaN;
+        }
+        if (!Double.isFinite(rate) || rate < 0) {
+            throw new ValidationException("Tariff line " + lineNumber + ": rates must be non-negative numbers");
+        }
+        return rate;
+    }
+}
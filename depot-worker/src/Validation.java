@@ -0,0 +1,140 @@
+// Shared, allocation-free checks for parcel and customer input. Formats are
+// matched by hand rather than with String.matches, which compiles a regex on
+// every call.
+final class Validation {
+    private Validation() {
+    }
+
+    static ValidationResult checkParcel(String id, double weight, String type) {
+        ValidationResult result = checkParcelId(id);
+        if (!result.isOk()) {
+            return result;
+        }
+        result = checkWeight(weight);
+        if (!result.isOk()) {
+            return result;
+        }
+        return checkParcelType(type);
+    }
+
+    static ValidationResult checkParcelId(String id) {
+        if (isBlank(id)) {
+            return ValidationResult.PARCEL_ID_EMPTY;
+        }
+        return isPrefixedId(id, 'P') ? ValidationResult.OK : ValidationResult.PARCEL_ID_FORMAT;
+    }
+
+    static ValidationResult checkWeight(double weight) {
+        if (Double.isNaN(weight)) {
+            return ValidationResult.WEIGHT_FORMAT;
+        }
+        return weight <= 0 || weight > 100 ? ValidationResult.WEIGHT_RANGE : ValidationResult.OK;
+    }
+
+    static ValidationResult checkParcelType(String type) {
+        if (isBlank(type)) {
+            return ValidationResult.PARCEL_TYPE_EMPTY;
+        }
+        return ParcelType.fromName(type) != null ? ValidationResult.OK : ValidationResult.PARCEL_TYPE_INVALID;
+    }
+
+    static ValidationResult checkCustomer(String id, String name) {
+        ValidationResult result = checkCustomerId(id);
+        if (!result.isOk()) {
+            return result;
+        }
+        if (isBlank(name)) {
+            return ValidationResult.CUSTOMER_NAME_EMPTY;
+        }
+        if (name.length() < 2 || name.length() > 50) {
+            return ValidationResult.CUSTOMER_NAME_LENGTH;
+        }
+        return ValidationResult.OK;
+    }
+
+    static ValidationResult checkCustomerId(String id) {
+        if (isBlank(id)) {
+            return ValidationResult.CUSTOMER_ID_EMPTY;
+        }
+        return isPrefixedId(id, 'C') ? ValidationResult.OK : ValidationResult.CUSTOMER_ID_FORMAT;
+    }
+
+    // Parses a weight without throwing: plain decimals are handled directly,
+    // anything else goes through Double.parseDouble. Returns NaN if invalid.
+    static double parseWeight(String text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDot = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (seenDot) {
+                    scale++;
+                }
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                return parseWeightSlow(text);
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        if (digits > 15) {
+            return parseWeightSlow(text);
+        }
+        return scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+    }
+
+    private static double parseWeightSlow(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    static boolean isBlank(String value) {
+        if (value == null) {
+            return true;
+        }
+        // Same notion of blank as value.trim().isEmpty(), without the copy.
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Matches the format "<prefix>" followed by exactly three digits.
+    private static boolean isPrefixedId(String id, char prefix) {
+        if (id.length() != 4 || id.charAt(0) != prefix) {
+            return false;
+        }
+        for (int i = 1; i < 4; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // mantissa / 10^k is correctly rounded for up to 15 significant digits,
+    // so results match Double.parseDouble.
+    static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+}
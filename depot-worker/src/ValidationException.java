@@ -1,6 +1,14 @@
 
 class ValidationException extends Exception {
+    // Validation failures are expected input errors, not bugs, so no stack
+    // trace is captured; filling one in dominated the cost of rejecting a line.
     public ValidationException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
-}
\ No newline at end of file
+
+    // For failures outside the input, e.g. a change that could not be
+    // journaled; the cause is kept for the log.
+    public ValidationException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
@@ -0,0 +1,34 @@
+// Outcome of a validation check. Checks return one of these instead of
+// throwing, so bulk paths can reject bad input cheaply; toException() is used
+// only where a caller-facing API needs to report the failure.
+enum ValidationResult {
+    OK(null),
+    PARCEL_ID_EMPTY("Parcel ID cannot be empty"),
+    PARCEL_ID_FORMAT("Parcel ID must be in format P followed by 3 digits"),
+    WEIGHT_FORMAT("Invalid weight format"),
+    WEIGHT_RANGE("Weight must be between 0 and 100 kg"),
+    PARCEL_TYPE_EMPTY("Parcel type cannot be empty"),
+    PARCEL_TYPE_INVALID("Invalid parcel type. Must be " + ParcelType.describeAll()),
+    CUSTOMER_ID_EMPTY("Customer ID cannot be empty"),
+    CUSTOMER_ID_FORMAT("Customer ID must be in format C followed by 3 digits"),
+    CUSTOMER_NAME_EMPTY("Customer name cannot be empty"),
+    CUSTOMER_NAME_LENGTH("Customer name must be between 2 and 50 characters");
+
+    private final String message;
+
+    ValidationResult(String message) {
+        this.message = message;
+    }
+
+    public boolean isOk() {
+        return this == OK;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public ValidationException toException() {
+        return new ValidationException(message);
+    }
+}
@@ -0,0 +1,74 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Tariff.feesFor with the Vector API, a vector of parcels at a time. The
+// per-type rates are picked by comparing each lane's type code with the
+// codes and blending, which for a handful of types beats a gather. The
+// rates are held in locals rather than arrays so the JIT keeps them in
+// registers; that fixes the number of types, and a tariff for any other
+// number is priced by the scalar loop. The arithmetic is the scalar loop's
+// (multiply, then add; no fused multiply-add), so both paths charge
+// identical fees.
+//
+// Only Tariff touches this class, and only after checking that the
+// jdk.incubator.vector module is in the boot layer (start the JVM with
+// --add-modules jdk.incubator.vector); without it the class never loads.
+final class VectorFees {
+    static final int TYPES = 3;
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // Type codes are read 8 bytes at a time and widened into the first
+    // SPECIES.length() lanes; no double species has more than 8 lanes.
+    private static final VectorSpecies<Byte> CODES = ByteVector.SPECIES_64;
+
+    private VectorFees() {
+    }
+
+    // A single-lane species means the hardware has no vector unit to use.
+    static boolean isUseful() {
+        return SPECIES.length() > 1 && ParcelType.count() == TYPES;
+    }
+
+    // Same contract as Tariff.feesFor; parcels past the last whole vector are
+    // priced one at a time.
+    static int feesFor(double[] fixed, double[] perKg, double[] weights, byte[] typeCodes,
+            double[] fees, int count, double maxFee) {
+        int lanes = SPECIES.length();
+        DoubleVector fixed0 = DoubleVector.broadcast(SPECIES, fixed[0]);
+        DoubleVector fixed1 = DoubleVector.broadcast(SPECIES, fixed[1]);
+        DoubleVector fixed2 = DoubleVector.broadcast(SPECIES, fixed[2]);
+        DoubleVector perKg0 = DoubleVector.broadcast(SPECIES, perKg[0]);
+        DoubleVector perKg1 = DoubleVector.broadcast(SPECIES, perKg[1]);
+        DoubleVector perKg2 = DoubleVector.broadcast(SPECIES, perKg[2]);
+        VectorMask<Double> over = SPECIES.maskAll(false);
+        int i = 0;
+        for (; i + lanes <= count && i + CODES.length() <= typeCodes.length; i += lanes) {
+            DoubleVector codes = (DoubleVector) ByteVector.fromArray(CODES, typeCodes, i)
+                .convertShape(VectorOperators.B2D, SPECIES, 0);
+            VectorMask<Double> type1 = codes.eq(1);
+            VectorMask<Double> type2 = codes.eq(2);
+            DoubleVector perKgRate = perKg0.blend(perKg1, type1).blend(perKg2, type2);
+            DoubleVector fixedRate = fixed0.blend(fixed1, type1).blend(fixed2, type2);
+            DoubleVector fee = DoubleVector.fromArray(SPECIES, weights, i).mul(perKgRate).add(fixedRate);
+            fee.intoArray(fees, i);
+            over = over.or(fee.compare(VectorOperators.GT, maxFee));
+        }
+        boolean anyOver = over.anyTrue();
+        for (; i < count; i++) {
+            int code = typeCodes[i];
+            fees[i] = fixed[code] + perKg[code] * weights[i];
+            anyOver |= fees[i] > maxFee;
+        }
+        if (anyOver) {
+            for (int j = 0; j < count; j++) {
+                if (fees[j] > maxFee) {
+                    return j;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -1,5 +1,11 @@
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
 class Worker {
     private static final double MAX_FEE = 1000.0;
+    private static final Metrics.Histogram PROCESS_TIME = Metrics.getInstance().histogram("worker.processParcel");
+    private static final LongAdder PROCESS_ERRORS = Metrics.getInstance().counter("worker.processParcel.errors");
+    private static final ChangeEventBus EVENTS = ChangeEventBus.getInstance();
 
     public double calculateFee(Parcel parcel) throws ValidationException {
         if (parcel == null) {
@@ -9,27 +15,96 @@ class Worker {
             throw new ValidationException("Parcel has already been processed");
         }
 
-        double baseFee = 10.0;
-        double weightFee = parcel.getWeight() * 0.5;
-        double typeFee = switch (parcel.getType().toLowerCase()) {
-            case "fragile" -> 5.0;
-            case "perishable" -> 7.0;
-            case "standard" -> 0.0;
-            default -> throw new ValidationException("Invalid parcel type");
-        };
-
-        double totalFee = baseFee + weightFee + typeFee;
+        double totalFee = TariffEngine.current().feeFor(parcel.getParcelType(), parcel.getWeight());
         if (totalFee > MAX_FEE) {
             throw new ValidationException("Calculated fee exceeds maximum allowed amount");
         }
         return totalFee;
     }
 
+    // Batch form of calculateFee for parcels already laid out as columns:
+    // fees[i] is the fee for weights[i] and typeCodes[i] (ParcelType
+    // ordinals). All count fees are priced against the same tariff.
+    public void calculateFees(double[] weights, byte[] typeCodes, double[] fees, int count)
+            throws ValidationException {
+        if (count < 0 || count > weights.length || count > typeCodes.length || count > fees.length) {
+            throw new ValidationException("Batch arrays are shorter than the parcel count");
+        }
+        int over = TariffEngine.current().feesFor(weights, typeCodes, fees, count, MAX_FEE);
+        if (over >= 0) {
+            throw new ValidationException("Calculated fee exceeds maximum allowed amount at index " + over);
+        }
+    }
+
     public void processParcel(Parcel parcel) throws ValidationException {
-        double fee = calculateFee(parcel);
-        parcel.setFee(fee);
-        parcel.setProcessed(true);
+        if (parcel == null) {
+            throw new ValidationException("Cannot calculate fee for null parcel");
+        }
+        double fee;
+        long start = System.nanoTime();
+        // Check-and-mark must be atomic so two workers can never charge the same parcel.
+        synchronized (parcel) {
+            try {
+                fee = calculateFee(parcel);
+            } catch (ValidationException e) {
+                PROCESS_ERRORS.increment();
+                throw e;
+            }
+            // Mark first so observers notified by setFee see the final state.
+            parcel.setProcessed(true);
+            parcel.setFee(fee);
+        }
+        PROCESS_TIME.recordSince(start);
+        EVENTS.parcelProcessed(parcel, fee);
         Log.getInstance().addEntry("Processed parcel " + parcel.getId() + 
                                  " with fee: $" + String.format("%.2f", fee));
     }
+
+    // Batch form of processParcel for one customer's parcels: all of them are
+    // priced in one calculateFees pass against one tariff, then each is
+    // checked and marked as processParcel would. Returns null when every
+    // parcel was processed, otherwise the error for each parcel that was not.
+    public String[] processParcels(List<Parcel> parcels) {
+        int count = parcels.size();
+        double[] weights = new double[count];
+        byte[] typeCodes = new byte[count];
+        double[] fees = new double[count];
+        for (int i = 0; i < count; i++) {
+            weights[i] = parcels.get(i).getWeight();
+            typeCodes[i] = (byte) parcels.get(i).getParcelType().ordinal();
+        }
+        // Fees over the ceiling are refused one by one below.
+        TariffEngine.current().feesFor(weights, typeCodes, fees, count, MAX_FEE);
+
+        String[] errors = null;
+        for (int i = 0; i < count; i++) {
+            Parcel parcel = parcels.get(i);
+            double fee = fees[i];
+            String error = null;
+            long start = System.nanoTime();
+            synchronized (parcel) {
+                if (parcel.isProcessed()) {
+                    error = "Parcel has already been processed";
+                } else if (fee > MAX_FEE) {
+                    error = "Calculated fee exceeds maximum allowed amount";
+                } else {
+                    parcel.setProcessed(true);
+                    parcel.setFee(fee);
+                }
+            }
+            if (error != null) {
+                PROCESS_ERRORS.increment();
+                if (errors == null) {
+                    errors = new String[count];
+                }
+                errors[i] = error;
+                continue;
+            }
+            PROCESS_TIME.recordSince(start);
+            EVENTS.parcelProcessed(parcel, fee);
+            Log.getInstance().addEntry("Processed parcel " + parcel.getId() +
+                                     " with fee: $" + String.format("%.2f", fee));
+        }
+        return errors;
+    }
 }